@@ -0,0 +1,42 @@
+package by.viachaslau;
+
+class BloomFilter {
+    private static final int BITS_PER_KEY = 10;
+    private static final int HASHES = 7;
+
+    private final long[] bits;
+
+    BloomFilter(int expectedKeys) {
+        bits = new long[Math.max(1, (expectedKeys * BITS_PER_KEY + Long.SIZE - 1) / Long.SIZE)];
+    }
+
+    void add(Object key) {
+        long hash = hash(key);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        long bitCount = (long) bits.length * Long.SIZE;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Math.floorMod(hash1 + (long) i * hash2, bitCount);
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    boolean mightContain(Object key) {
+        long hash = hash(key);
+        int hash1 = (int) hash;
+        int hash2 = (int) (hash >>> 32);
+        long bitCount = (long) bits.length * Long.SIZE;
+        for (int i = 0; i < HASHES; i++) {
+            long bit = Math.floorMod(hash1 + (long) i * hash2, bitCount);
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long hash(Object key) {
+        long hash = key.hashCode() * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 29);
+    }
+}
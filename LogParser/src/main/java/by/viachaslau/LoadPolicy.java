@@ -0,0 +1,10 @@
+package by.viachaslau;
+
+/**
+ * What a query does while {@link LogParser#loadInBackground(java.nio.file.Path, LoadPolicy)}
+ * has not yet loaded every file its window may need.
+ */
+public enum LoadPolicy {
+    WAIT,
+    PARTIAL
+}
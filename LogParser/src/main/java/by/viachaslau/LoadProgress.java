@@ -0,0 +1,13 @@
+package by.viachaslau;
+
+import java.util.Date;
+
+/**
+ * Loading state of a {@link LogParser}. Queries whose {@code after} is not earlier
+ * than {@code loadedAfter} see every row they would see once loading is done.
+ * While the newest entry of every file is still being read, no query is covered and
+ * {@code loadedAfter} is {@code new Date(Long.MAX_VALUE)}; it is {@code null} once
+ * the files left to load hold no rows, and all queries are covered.
+ */
+public record LoadProgress(int filesLoaded, int filesTotal, long rowsLoaded, Date loadedAfter, boolean done) {
+}
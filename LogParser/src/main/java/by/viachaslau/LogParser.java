@@ -1,738 +1,1032 @@
-package by.viachaslau;
-
-import by.viachaslau.query.*;
-
-import java.io.BufferedReader;
-import java.io.FileReader;
-import java.io.IOException;
-import java.nio.file.DirectoryStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-public class LogParser implements IPQuery, UserQuery, DateQuery, EventQuery, QLQuery {
-    private final Path logDir;
-    private final List<LogEntity> logEntities = new ArrayList<>();
-    private final DateFormat simpleDateFormat = new SimpleDateFormat("d.M.yyyy H:m:s");
-
-    public LogParser(Path logDir) {
-        this.logDir = logDir;
-        readLogs();
-    }
-
-    @Override
-    public int getNumberOfUniqueIPs(Date after, Date before) {
-        return getUniqueIPs(after, before).size();
-    }
-
-    @Override
-    public Set<String> getUniqueIPs(Date after, Date before) {
-        Set<String> result = new HashSet<>();
-        for (LogEntity logEntity : logEntities) {
-            if (dateBetweenDates(logEntity.date(), after, before)) {
-                result.add(logEntity.ip());
-            }
-        }
-        return result;
-    }
-
-    @Override
-    public Set<String> getIPsForUser(String user, Date after, Date before) {
-        Set<String> result = new HashSet<>();
-        for (LogEntity logEntity : logEntities) {
-            if (dateBetweenDates(logEntity.date(), after, before)) {
-                if (logEntity.user().equals(user)) {
-                    result.add(logEntity.ip());
-                }
-            }
-        }
-        return result;
-    }
-
-    @Override
-    public Set<String> getIPsForEvent(Event event, Date after, Date before) {
-        Set<String> result = new HashSet<>();
-        for (LogEntity logEntity : logEntities) {
-            if (dateBetweenDates(logEntity.date(), after, before)) {
-                if (logEntity.event().equals(event)) {
-                    result.add(logEntity.ip());
-                }
-            }
-        }
-        return result;
-    }
-
-    @Override
-    public Set<String> getIPsForStatus(Status status, Date after, Date before) {
-        Set<String> result = new HashSet<>();
-        for (LogEntity logEntity : logEntities) {
-            if (dateBetweenDates(logEntity.date(), after, before)) {
-                if (logEntity.status().equals(status)) {
-                    result.add(logEntity.ip());
-                }
-            }
-        }
-        return result;
-    }
-
-    @Override
-    public Set<String> getAllUsers() {
-        Set<String> result = new HashSet<>();
-        for (LogEntity logEntity : logEntities) {
-            result.add(logEntity.user());
-        }
-        return result;
-    }
-
-    @Override
-    public int getNumberOfUsers(Date after, Date before) {
-        Set<String> result = new HashSet<>();
-        for (LogEntity logEntity : logEntities) {
-            if (dateBetweenDates(logEntity.date(), after, before)) {
-                result.add(logEntity.user());
-            }
-        }
-        return result.size();
-    }
-
-    @Override
-    public int getNumberOfUserEvents(String user, Date after, Date before) {
-        Set<Event> result = new HashSet<>();
-        for (LogEntity logEntity : logEntities) {
-            if (dateBetweenDates(logEntity.date(), after, before)) {
-                if (logEntity.user().equals(user)) {
-                    result.add(logEntity.event());
-                }
-            }
-        }
-        return result.size();
-    }
-
-    @Override
-    public Set<String> getUsersForIP(String ip, Date after, Date before) {
-        Set<String> result = new HashSet<>();
-        for (LogEntity logEntity : logEntities) {
-            if (dateBetweenDates(logEntity.date(), after, before)) {
-                if (logEntity.ip().equals(ip)) {
-                    result.add(logEntity.user());
-                }
-            }
-        }
-        return result;
-    }
-
-    @Override
-    public Set<String> getLoggedUsers(Date after, Date before) {
-        Set<String> result = new HashSet<>();
-        for (LogEntity logEntity : logEntities) {
-            if (dateBetweenDates(logEntity.date(), after, before)) {
-                if (logEntity.event().equals(Event.LOGIN)) {
-                    result.add(logEntity.user());
-                }
-            }
-        }
-        return result;
-    }
-
-    @Override
-    public Set<String> getDownloadedPluginUsers(Date after, Date before) {
-        Set<String> result = new HashSet<>();
-        for (LogEntity logEntity : logEntities) {
-            if (dateBetweenDates(logEntity.date(), after, before)) {
-                if (logEntity.event().equals(Event.DOWNLOAD_PLUGIN)) {
-                    result.add(logEntity.user());
-                }
-            }
-        }
-        return result;
-    }
-
-    @Override
-    public Set<String> getWroteMessageUsers(Date after, Date before) {
-        Set<String> result = new HashSet<>();
-        for (LogEntity logEntity : logEntities) {
-            if (dateBetweenDates(logEntity.date(), after, before)) {
-                if (logEntity.event().equals(Event.WRITE_MESSAGE)) {
-                    result.add(logEntity.user());
-                }
-            }
-        }
-        return result;
-    }
-
-    @Override
-    public Set<String> getSolvedTaskUsers(Date after, Date before) {
-        Set<String> result = new HashSet<>();
-        for (LogEntity logEntity : logEntities) {
-            if (dateBetweenDates(logEntity.date(), after, before)) {
-                if (logEntity.event().equals(Event.SOLVE_TASK)) {
-                    result.add(logEntity.user());
-                }
-            }
-        }
-        return result;
-    }
-
-    @Override
-    public Set<String> getSolvedTaskUsers(Date after, Date before, int task) {
-        Set<String> result = new HashSet<>();
-        for (LogEntity logEntity : logEntities) {
-            if (dateBetweenDates(logEntity.date(), after, before)) {
-                if (logEntity.event().equals(Event.SOLVE_TASK)
-                        && logEntity.eventAdditionalParameter() == task) {
-                    result.add(logEntity.user());
-                }
-            }
-        }
-        return result;
-    }
-
-    @Override
-    public Set<String> getDoneTaskUsers(Date after, Date before) {
-        Set<String> result = new HashSet<>();
-        for (LogEntity logEntity : logEntities) {
-            if (dateBetweenDates(logEntity.date(), after, before)) {
-                if (logEntity.event().equals(Event.DONE_TASK)) {
-                    result.add(logEntity.user());
-                }
-            }
-        }
-        return result;
-    }
-
-    @Override
-    public Set<String> getDoneTaskUsers(Date after, Date before, int task) {
-        Set<String> result = new HashSet<>();
-        for (LogEntity logEntity : logEntities) {
-            if (dateBetweenDates(logEntity.date(), after, before)) {
-                if (logEntity.event().equals(Event.DONE_TASK)
-                        && logEntity.eventAdditionalParameter() == task) {
-                    result.add(logEntity.user());
-                }
-            }
-        }
-        return result;
-    }
-
-    @Override
-    public Set<Date> getDatesForUserAndEvent(String user, Event event, Date after, Date before) {
-        Set<Date> result = new HashSet<>();
-        for (LogEntity logEntity : logEntities) {
-            if (dateBetweenDates(logEntity.date(), after, before)) {
-                if (logEntity.user().equals(user)
-                        && logEntity.event().equals(event)) {
-                    result.add(logEntity.date());
-                }
-            }
-        }
-        return result;
-    }
-
-    @Override
-    public Set<Date> getDatesWhenSomethingFailed(Date after, Date before) {
-        Set<Date> result = new HashSet<>();
-        for (LogEntity logEntity : logEntities) {
-            if (dateBetweenDates(logEntity.date(), after, before)) {
-                if (logEntity.status().equals(Status.FAILED)) {
-                    result.add(logEntity.date());
-                }
-            }
-        }
-        return result;
-    }
-
-    @Override
-    public Set<Date> getDatesWhenErrorHappened(Date after, Date before) {
-        Set<Date> result = new HashSet<>();
-        for (LogEntity logEntity : logEntities) {
-            if (dateBetweenDates(logEntity.date(), after, before)) {
-                if (logEntity.status().equals(Status.ERROR)) {
-                    result.add(logEntity.date());
-                }
-            }
-        }
-        return result;
-    }
-
-    @Override
-    public Date getDateWhenUserLoggedFirstTime(String user, Date after, Date before) {
-        Set<Date> set = new HashSet<>();
-        for (LogEntity logEntity : logEntities) {
-            if (dateBetweenDates(logEntity.date(), after, before)) {
-                if (logEntity.user().equals(user)
-                        && logEntity.event().equals(Event.LOGIN)) {
-                    set.add(logEntity.date());
-                }
-            }
-        }
-        if (set.isEmpty()) {
-            return null;
-        }
-        Date minDate = set.iterator().next();
-        for (Date date : set) {
-            if (date.getTime() < minDate.getTime())
-                minDate = date;
-        }
-        return minDate;
-    }
-
-    @Override
-    public Date getDateWhenUserSolvedTask(String user, int task, Date after, Date before) {
-        Set<Date> set = new HashSet<>();
-        for (LogEntity logEntity : logEntities) {
-            if (dateBetweenDates(logEntity.date(), after, before)) {
-                if (logEntity.user().equals(user)
-                        && logEntity.event().equals(Event.SOLVE_TASK)
-                        && logEntity.eventAdditionalParameter() == task) {
-                    set.add(logEntity.date());
-                }
-            }
-        }
-        if (set.isEmpty()) {
-            return null;
-        }
-        Date minDate = set.iterator().next();
-        for (Date date : set) {
-            if (date.getTime() < minDate.getTime())
-                minDate = date;
-        }
-        return minDate;
-    }
-
-    @Override
-    public Date getDateWhenUserDoneTask(String user, int task, Date after, Date before) {
-        Set<Date> set = new HashSet<>();
-        for (LogEntity logEntity : logEntities) {
-            if (dateBetweenDates(logEntity.date(), after, before)) {
-                if (logEntity.user().equals(user)
-                        && logEntity.event().equals(Event.DONE_TASK)
-                        && logEntity.eventAdditionalParameter() == task) {
-                    set.add(logEntity.date());
-                }
-            }
-        }
-        if (set.isEmpty()) {
-            return null;
-        }
-        Date minDate = set.iterator().next();
-        for (Date date : set) {
-            if (date.getTime() < minDate.getTime())
-                minDate = date;
-        }
-        return minDate;
-    }
-
-    @Override
-    public Set<Date> getDatesWhenUserWroteMessage(String user, Date after, Date before) {
-        Set<Date> result = new HashSet<>();
-        for (LogEntity logEntity : logEntities) {
-            if (dateBetweenDates(logEntity.date(), after, before)) {
-                if (logEntity.user().equals(user)
-                        && logEntity.event().equals(Event.WRITE_MESSAGE)) {
-                    result.add(logEntity.date());
-                }
-            }
-        }
-        return result;
-    }
-
-    @Override
-    public Set<Date> getDatesWhenUserDownloadedPlugin(String user, Date after, Date before) {
-        Set<Date> result = new HashSet<>();
-        for (LogEntity logEntity : logEntities) {
-            if (dateBetweenDates(logEntity.date(), after, before)) {
-                if (logEntity.user().equals(user)
-                        && logEntity.event().equals(Event.DOWNLOAD_PLUGIN)) {
-                    result.add(logEntity.date());
-                }
-            }
-        }
-        return result;
-    }
-
-    @Override
-    public int getNumberOfAllEvents(Date after, Date before) {
-        return getAllEvents(after, before).size();
-    }
-
-    @Override
-    public Set<Event> getAllEvents(Date after, Date before) {
-        Set<Event> result = new HashSet<>();
-        for (LogEntity logEntity : logEntities) {
-            if (dateBetweenDates(logEntity.date(), after, before)) {
-                result.add(logEntity.event());
-            }
-        }
-        return result;
-    }
-
-    @Override
-    public Set<Event> getEventsForIP(String ip, Date after, Date before) {
-        Set<Event> result = new HashSet<>();
-        for (LogEntity logEntity : logEntities) {
-            if (dateBetweenDates(logEntity.date(), after, before)) {
-                if (logEntity.ip().equals(ip)) {
-                    result.add(logEntity.event());
-                }
-            }
-        }
-        return result;
-    }
-
-    @Override
-    public Set<Event> getEventsForUser(String user, Date after, Date before) {
-        Set<Event> result = new HashSet<>();
-        for (LogEntity logEntity : logEntities) {
-            if (dateBetweenDates(logEntity.date(), after, before)) {
-                if (logEntity.user().equals(user)) {
-                    result.add(logEntity.event());
-                }
-            }
-        }
-        return result;
-    }
-
-    @Override
-    public Set<Event> getFailedEvents(Date after, Date before) {
-        Set<Event> result = new HashSet<>();
-        for (LogEntity logEntity : logEntities) {
-            if (dateBetweenDates(logEntity.date(), after, before)) {
-                if (logEntity.status().equals(Status.FAILED)) {
-                    result.add(logEntity.event());
-                }
-            }
-        }
-        return result;
-    }
-
-    @Override
-    public Set<Event> getErrorEvents(Date after, Date before) {
-        Set<Event> result = new HashSet<>();
-        for (LogEntity logEntity : logEntities) {
-            if (dateBetweenDates(logEntity.date(), after, before)) {
-                if (logEntity.status().equals(Status.ERROR)) {
-                    result.add(logEntity.event());
-                }
-            }
-        }
-        return result;
-    }
-
-    @Override
-    public int getNumberOfAttemptToSolveTask(int task, Date after, Date before) {
-        int quantity = 0;
-        for (LogEntity logEntity : logEntities) {
-            if (dateBetweenDates(logEntity.date(), after, before)) {
-                if (logEntity.event().equals(Event.SOLVE_TASK)
-                        && logEntity.eventAdditionalParameter() == task) {
-                    quantity++;
-                }
-            }
-        }
-        return quantity;
-    }
-
-    @Override
-    public int getNumberOfSuccessfulAttemptToSolveTask(int task, Date after, Date before) {
-        int quantity = 0;
-        for (LogEntity logEntity : logEntities) {
-            if (dateBetweenDates(logEntity.date(), after, before)) {
-                if (logEntity.event().equals(Event.DONE_TASK)
-                        && logEntity.eventAdditionalParameter() == task) {
-                    quantity++;
-                }
-            }
-        }
-        return quantity;
-    }
-
-    @Override
-    public Map<Integer, Integer> getAllSolvedTasksAndTheirNumber(Date after, Date before) {
-        Map<Integer, Integer> result = new HashMap<>();
-        for (LogEntity logEntity : logEntities) {
-            if (dateBetweenDates(logEntity.date(), after, before)) {
-                if (logEntity.event().equals(Event.SOLVE_TASK)) {
-                    int task = logEntity.eventAdditionalParameter();
-                    int count = result.getOrDefault(task, 0);
-                    result.put(task, count + 1);
-                }
-            }
-        }
-        return result;
-    }
-
-    @Override
-    public Map<Integer, Integer> getAllDoneTasksAndTheirNumber(Date after, Date before) {
-        Map<Integer, Integer> result = new HashMap<>();
-        for (LogEntity logEntity : logEntities) {
-            if (dateBetweenDates(logEntity.date(), after, before)) {
-                if (logEntity.event().equals(Event.DONE_TASK)) {
-                    int task = logEntity.eventAdditionalParameter();
-                    int count = result.getOrDefault(task, 0);
-                    result.put(task, count + 1);
-                }
-            }
-        }
-        return result;
-    }
-
-    @Override
-    public Set<Object> execute(String query) {
-        Set<Object> result = new HashSet<>();
-        String field1;
-        String field2 = null;
-        String value1 = null;
-        Date after = null;
-        Date before = null;
-        Pattern pattern = Pattern.compile("get (ip|user|date|event|status)"
-                + "( for (ip|user|date|event|status) = \"(.*?)\")?"
-                + "( and date between \"(.*?)\" and \"(.*?)\")?");
-        Matcher matcher = pattern.matcher(query);
-        matcher.find();
-        field1 = matcher.group(1);
-        if (matcher.group(2) != null) {
-            field2 = matcher.group(3);
-            value1 = matcher.group(4);
-            if (matcher.group(5) != null) {
-                try {
-                    after = simpleDateFormat.parse(matcher.group(6));
-                    before = simpleDateFormat.parse(matcher.group(7));
-                } catch (ParseException ignored) {
-                }
-            }
-        }
-
-        if (field2 != null && value1 != null) {
-            for (LogEntity logEntity : logEntities) {
-                if (dateBetweenDates(logEntity.date(), after, before)) {
-                    if (field2.equals("date")) {
-                        try {
-                            if (logEntity.date().getTime() == simpleDateFormat.parse(value1).getTime()) {
-                                result.add(getCurrentValue(logEntity, field1));
-                            }
-                        } catch (ParseException ignored) {
-                        }
-                    } else {
-                        if (value1.equals(getCurrentValue(logEntity, field2).toString())) {
-                            result.add(getCurrentValue(logEntity, field1));
-                        }
-                    }
-                }
-            }
-        } else {
-            for (LogEntity logEntity : logEntities) {
-                result.add(getCurrentValue(logEntity, field1));
-            }
-        }
-
-        return result;
-    }
-
-    private void readLogs() {
-        try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(logDir)) {
-            for (Path file : directoryStream) {
-                if (file.toString().toLowerCase().endsWith(".log")) {
-                    try (BufferedReader reader = new BufferedReader(new FileReader(file.toFile()))) {
-                        String line;
-                        while ((line = reader.readLine()) != null) {
-                            String[] params = line.split("\t");
-
-                            if (params.length != 5) {
-                                continue;
-                            }
-
-                            String ip = params[0];
-                            String user = params[1];
-                            Date date = readDate(params[2]);
-                            Event event = readEvent(params[3]);
-                            int eventAdditionalParameter = -1;
-                            if (event.equals(Event.SOLVE_TASK) || event.equals(Event.DONE_TASK)) {
-                                eventAdditionalParameter = readAdditionalParameter(params[3]);
-                            }
-                            Status status = readStatus(params[4]);
-
-                            LogEntity logEntity = new LogEntity(ip, user, date, event, eventAdditionalParameter, status);
-                            logEntities.add(logEntity);
-                        }
-                    }
-                }
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
-
-    private Date readDate(String lineToParse) {
-        Date date = null;
-        try {
-            date = simpleDateFormat.parse(lineToParse);
-        } catch (ParseException ignored) {
-        }
-        return date;
-    }
-
-    private Event readEvent(String lineToParse) {
-        Event event = null;
-        if (lineToParse.contains("SOLVE_TASK")) {
-            event = Event.SOLVE_TASK;
-        } else if (lineToParse.contains("DONE_TASK")) {
-            event = Event.DONE_TASK;
-        } else {
-            switch (lineToParse) {
-                case "LOGIN": {
-                    event = Event.LOGIN;
-                    break;
-                }
-                case "DOWNLOAD_PLUGIN": {
-                    event = Event.DOWNLOAD_PLUGIN;
-                    break;
-                }
-                case "WRITE_MESSAGE": {
-                    event = Event.WRITE_MESSAGE;
-                    break;
-                }
-            }
-        }
-        return event;
-    }
-
-    private int readAdditionalParameter(String lineToParse) {
-        if (lineToParse.contains("SOLVE_TASK")) {
-            lineToParse = lineToParse.replace("SOLVE_TASK", "").replaceAll(" ", "");
-        } else {
-            lineToParse = lineToParse.replace("DONE_TASK", "").replaceAll(" ", "");
-        }
-        return Integer.parseInt(lineToParse);
-    }
-
-    private Status readStatus(String lineToParse) {
-        Status status = null;
-        switch (lineToParse) {
-            case "OK": {
-                status = Status.OK;
-                break;
-            }
-            case "FAILED": {
-                status = Status.FAILED;
-                break;
-            }
-            case "ERROR": {
-                status = Status.ERROR;
-                break;
-            }
-        }
-        return status;
-    }
-
-    private boolean dateBetweenDates(Date current, Date after, Date before) {
-        if (after == null) {
-            after = new Date(0);
-        }
-        if (before == null) {
-            before = new Date(Long.MAX_VALUE);
-        }
-        return current.after(after) && current.before(before);
-    }
-
-    private Object getCurrentValue(LogEntity logEntity, String field) {
-        Object value = null;
-        switch (field) {
-            case "ip": {
-                Command method = new GetIpCommand(logEntity);
-                value = method.execute();
-                break;
-            }
-            case "user": {
-                Command method = new GetUserCommand(logEntity);
-                value = method.execute();
-                break;
-            }
-            case "date": {
-                Command method = new GetDateCommand(logEntity);
-                value = method.execute();
-                break;
-            }
-            case "event": {
-                Command method = new GetEventCommand(logEntity);
-                value = method.execute();
-                break;
-            }
-            case "status": {
-                Command method = new GetStatusCommand(logEntity);
-                value = method.execute();
-                break;
-            }
-        }
-        return value;
-    }
-
-    private record LogEntity(String ip, String user, Date date, Event event, int eventAdditionalParameter,
-                             Status status) {
-    }
-
-    private abstract static class Command {
-        protected LogEntity logEntity;
-
-        abstract Object execute();
-    }
-
-    private static class GetIpCommand extends Command {
-        public GetIpCommand(LogEntity logEntity) {
-            this.logEntity = logEntity;
-        }
-
-        @Override
-        Object execute() {
-            return logEntity.ip();
-        }
-    }
-
-    private static class GetUserCommand extends Command {
-        public GetUserCommand(LogEntity logEntity) {
-            this.logEntity = logEntity;
-        }
-
-        @Override
-        Object execute() {
-            return logEntity.user();
-        }
-    }
-
-    private static class GetDateCommand extends Command {
-        public GetDateCommand(LogEntity logEntity) {
-            this.logEntity = logEntity;
-        }
-
-        @Override
-        Object execute() {
-            return logEntity.date();
-        }
-    }
-
-    private static class GetEventCommand extends Command {
-        public GetEventCommand(LogEntity logEntity) {
-            this.logEntity = logEntity;
-        }
-
-        @Override
-        Object execute() {
-            return logEntity.event();
-        }
-    }
-
-    private static class GetStatusCommand extends Command {
-        public GetStatusCommand(LogEntity logEntity) {
-            this.logEntity = logEntity;
-        }
-
-        @Override
-        Object execute() {
-            return logEntity.status();
-        }
-    }
-}
+package by.viachaslau;
+
+import by.viachaslau.query.*;
+import by.viachaslau.scan.ScanKernel;
+import by.viachaslau.scan.ScanKernels;
+import by.viachaslau.scan.ScanPredicate;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class LogParser implements IPQuery, UserQuery, DateQuery, EventQuery, QLQuery, SequenceQuery, RangeQuery {
+    private static final int SCAN_BATCH = 4096;
+    private static final int TAIL_SEGMENT_ROWS = 65536;
+    private static final long NO_DATE_LOADED = Long.MIN_VALUE + 1;
+    private static final Pattern QUERY_PATTERN = Pattern.compile("get (ip|user|date|event|status)"
+            + "( for (ip|user|date|event|status) = \"(.*?)\")?"
+            + "( and date between \"(.*?)\" and \"(.*?)\")?");
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private final List<StandingQuery<?>> standingQueries = new CopyOnWriteArrayList<>();
+    private final Object ingestLock = new Object();
+    private final ScanKernel scanKernel = ScanKernels.preferred();
+    private final Statistics statistics = new Statistics();
+    private final QueryPlanner queryPlanner = new QueryPlanner(statistics);
+    private final ThreadLocal<DateFormat> simpleDateFormat =
+            ThreadLocal.withInitial(() -> new SimpleDateFormat("d.M.yyyy H:m:s"));
+    private final Object loadMonitor = new Object();
+    private final Object budgetLock = new Object();
+    private final LoadPolicy loadPolicy;
+    private Segment tail;
+    private volatile Consumer<QueryPlan> planListener;
+    private volatile MemoryManager memoryManager;
+    private volatile long loadedAfter = Long.MIN_VALUE;
+    private volatile int filesLoaded;
+    private volatile int filesTotal;
+
+    public LogParser(Path logDir) {
+        this(listLogFiles(logDir));
+    }
+
+    public LogParser(Collection<Path> logFiles) {
+        this.loadPolicy = LoadPolicy.WAIT;
+        this.filesTotal = logFiles.size();
+        readLogs(logFiles);
+        this.filesLoaded = filesTotal;
+    }
+
+    private LogParser(LoadPolicy loadPolicy) {
+        this.loadPolicy = loadPolicy;
+    }
+
+    /**
+     * Returns a parser at once and loads the log files of {@code logDir} on a background
+     * thread. The thread first reads the newest entry of every file, then loads the files
+     * newest entry first, so a file still to be loaded only has entries up to the newest
+     * entry of the next one, and a query whose {@code after} is not earlier than that is
+     * already answered in full. Other queries wait for the files they need or, with
+     * {@link LoadPolicy#PARTIAL}, are answered from the rows loaded so far.
+     */
+    public static LogParser loadInBackground(Path logDir, LoadPolicy loadPolicy) {
+        LogParser logParser = new LogParser(loadPolicy);
+        List<Path> logFiles = new ArrayList<>(listLogFiles(logDir));
+        logParser.filesTotal = logFiles.size();
+        logParser.loadedAfter = logFiles.isEmpty() ? Long.MIN_VALUE : Long.MAX_VALUE;
+        Thread.ofPlatform().daemon().name("log-parser-loader").start(() -> {
+            Map<Path, Long> lastTimestamps = new HashMap<>();
+            for (Path file : logFiles) {
+                lastTimestamps.put(file, logParser.readLastTimestamp(file));
+            }
+            logFiles.sort(Comparator.comparing(lastTimestamps::get).reversed());
+            logParser.setLoaded(0, logFiles.isEmpty() ? Long.MIN_VALUE : lastTimestamps.get(logFiles.get(0)));
+            for (int i = 0; i < logFiles.size(); i++) {
+                try {
+                    logParser.readLogFile(logFiles.get(i));
+                } catch (IOException | RuntimeException e) {
+                    e.printStackTrace();
+                }
+                logParser.setLoaded(i + 1, i + 1 < logFiles.size()
+                        ? lastTimestamps.get(logFiles.get(i + 1)) : Long.MIN_VALUE);
+            }
+        });
+        return logParser;
+    }
+
+    /**
+     * Caps the estimated heap of loaded segments at {@code budgetBytes}. Segments over
+     * the budget are spilled to files in {@code spillDirectory}, oldest time range
+     * first, and from then on read from the memory-mapped files. Segments still being
+     * appended to by {@link #addLogLine(String)} are not counted until sealed.
+     */
+    public void setMemoryBudget(long budgetBytes, Path spillDirectory) {
+        synchronized (budgetLock) {
+            if (memoryManager != null) {
+                throw new IllegalStateException("Memory budget is already set");
+            }
+            MemoryManager manager = new MemoryManager(budgetBytes, spillDirectory);
+            memoryManager = manager;
+            List<Segment> sealed = new ArrayList<>();
+            for (Segment segment : segments) {
+                if (segment.index() != null) {
+                    sealed.add(segment);
+                }
+            }
+            sealed.sort(Comparator.comparingLong(segment -> -segment.index().lastTimestamp()));
+            // A segment sealed while this runs may be added both here and by seal(), which
+            // reads memoryManager after sealing; MemoryManager.add ignores the second add.
+            for (Segment segment : sealed) {
+                manager.add(segment);
+            }
+        }
+    }
+
+    public SpillMetrics getSpillMetrics() {
+        MemoryManager manager = memoryManager;
+        return manager == null ? null : manager.metrics();
+    }
+
+    public LoadProgress getLoadProgress() {
+        long rows = 0;
+        for (Segment segment : segments) {
+            rows += segment.size();
+        }
+        long after = loadedAfter;
+        int loaded = filesLoaded;
+        return new LoadProgress(loaded, filesTotal, rows,
+                after == Long.MIN_VALUE ? null : new Date(after), loaded == filesTotal);
+    }
+
+    /**
+     * Tells whether every row a query with this window would see is already loaded.
+     * Only {@code after} matters, since files are loaded newest first.
+     */
+    public boolean isLoaded(Date after, Date before) {
+        return isLoaded(after == null ? 0 : after.getTime());
+    }
+
+    /**
+     * Runs {@code query} and flags its result as partial if, under {@link LoadPolicy#PARTIAL},
+     * the window was not fully loaded when the query started.
+     */
+    public <T> PartialResult<T> query(Date after, Date before, Supplier<T> query) {
+        boolean loaded = isLoaded(after, before);
+        T value = query.get();
+        return new PartialResult<>(value, !loaded && loadPolicy == LoadPolicy.PARTIAL);
+    }
+
+    @Override
+    public Date getFirstDate() {
+        awaitLoaded(Long.MIN_VALUE);
+        long first = Long.MAX_VALUE;
+        for (Segment segment : segments) {
+            SegmentIndex index = segment.index();
+            if (index != null) {
+                first = Math.min(first, index.firstTimestamp());
+                continue;
+            }
+            int size = segment.size();
+            for (int row = 0; row < size; row++) {
+                if (segment.timestamp(row) != Segment.NO_DATE) {
+                    first = Math.min(first, segment.timestamp(row));
+                }
+            }
+        }
+        return first == Long.MAX_VALUE ? null : new Date(first);
+    }
+
+    @Override
+    public Date getLastDate() {
+        awaitLoaded(Long.MIN_VALUE);
+        long last = Long.MIN_VALUE;
+        for (Segment segment : segments) {
+            SegmentIndex index = segment.index();
+            if (index != null) {
+                last = Math.max(last, index.lastTimestamp());
+                continue;
+            }
+            int size = segment.size();
+            for (int row = 0; row < size; row++) {
+                last = Math.max(last, segment.timestamp(row));
+            }
+        }
+        return last == Segment.NO_DATE ? null : new Date(last);
+    }
+
+    @Override
+    public int getNumberOfUniqueIPs(Date after, Date before) {
+        return getUniqueIPs(after, before).size();
+    }
+
+    @Override
+    public Set<String> getUniqueIPs(Date after, Date before) {
+        Set<String> result = new HashSet<>();
+        scan(predicate(after, before, null, null), (segment, row) -> result.add(segment.ip(row)));
+        return result;
+    }
+
+    @Override
+    public Set<String> getIPsForUser(String user, Date after, Date before) {
+        Set<String> result = new HashSet<>();
+        scan(predicate(after, before, null, null), user, null, (segment, row) -> result.add(segment.ip(row)));
+        return result;
+    }
+
+    @Override
+    public Set<String> getIPsForEvent(Event event, Date after, Date before) {
+        Set<String> result = new HashSet<>();
+        scan(predicate(after, before, event, null), (segment, row) -> result.add(segment.ip(row)));
+        return result;
+    }
+
+    @Override
+    public Set<String> getIPsForStatus(Status status, Date after, Date before) {
+        Set<String> result = new HashSet<>();
+        scan(predicate(after, before, null, status), (segment, row) -> result.add(segment.ip(row)));
+        return result;
+    }
+
+    @Override
+    public Set<String> getAllUsers() {
+        awaitLoaded(Long.MIN_VALUE);
+        Set<String> result = new HashSet<>();
+        for (Segment segment : segments) {
+            touch(segment);
+            int size = segment.size();
+            for (int row = 0; row < size; row++) {
+                result.add(segment.user(row));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Set<String> getUsers(Date after, Date before) {
+        Set<String> result = new HashSet<>();
+        scan(predicate(after, before, null, null), (segment, row) -> result.add(segment.user(row)));
+        return result;
+    }
+
+    @Override
+    public int getNumberOfUsers(Date after, Date before) {
+        return getUsers(after, before).size();
+    }
+
+    @Override
+    public int getNumberOfUserEvents(String user, Date after, Date before) {
+        return getEventsForUser(user, after, before).size();
+    }
+
+    @Override
+    public Set<String> getUsersForIP(String ip, Date after, Date before) {
+        Set<String> result = new HashSet<>();
+        scan(predicate(after, before, null, null), null, ip, (segment, row) -> result.add(segment.user(row)));
+        return result;
+    }
+
+    @Override
+    public Set<String> getLoggedUsers(Date after, Date before) {
+        return getUsersForEvent(predicate(after, before, Event.LOGIN, null));
+    }
+
+    @Override
+    public Set<String> getDownloadedPluginUsers(Date after, Date before) {
+        return getUsersForEvent(predicate(after, before, Event.DOWNLOAD_PLUGIN, null));
+    }
+
+    @Override
+    public Set<String> getWroteMessageUsers(Date after, Date before) {
+        return getUsersForEvent(predicate(after, before, Event.WRITE_MESSAGE, null));
+    }
+
+    @Override
+    public Set<String> getSolvedTaskUsers(Date after, Date before) {
+        return getUsersForEvent(predicate(after, before, Event.SOLVE_TASK, null));
+    }
+
+    @Override
+    public Set<String> getSolvedTaskUsers(Date after, Date before, int task) {
+        return getUsersForEvent(predicate(after, before, Event.SOLVE_TASK, null, task));
+    }
+
+    @Override
+    public Set<String> getDoneTaskUsers(Date after, Date before) {
+        return getUsersForEvent(predicate(after, before, Event.DONE_TASK, null));
+    }
+
+    @Override
+    public Set<String> getDoneTaskUsers(Date after, Date before, int task) {
+        return getUsersForEvent(predicate(after, before, Event.DONE_TASK, null, task));
+    }
+
+    @Override
+    public Set<Date> getDatesForUserAndEvent(String user, Event event, Date after, Date before) {
+        return getDatesForUser(user, predicate(after, before, event, null));
+    }
+
+    @Override
+    public Set<Date> getDatesWhenSomethingFailed(Date after, Date before) {
+        Set<Date> result = new HashSet<>();
+        scan(predicate(after, before, null, Status.FAILED), (segment, row) -> result.add(segment.date(row)));
+        return result;
+    }
+
+    @Override
+    public Set<Date> getDatesWhenErrorHappened(Date after, Date before) {
+        Set<Date> result = new HashSet<>();
+        scan(predicate(after, before, null, Status.ERROR), (segment, row) -> result.add(segment.date(row)));
+        return result;
+    }
+
+    @Override
+    public Date getDateWhenUserLoggedFirstTime(String user, Date after, Date before) {
+        return getFirstDateForUser(user, predicate(after, before, Event.LOGIN, null));
+    }
+
+    @Override
+    public Date getDateWhenUserSolvedTask(String user, int task, Date after, Date before) {
+        return getFirstDateForUser(user, predicate(after, before, Event.SOLVE_TASK, null, task));
+    }
+
+    @Override
+    public Date getDateWhenUserDoneTask(String user, int task, Date after, Date before) {
+        return getFirstDateForUser(user, predicate(after, before, Event.DONE_TASK, null, task));
+    }
+
+    @Override
+    public Set<Date> getDatesWhenUserWroteMessage(String user, Date after, Date before) {
+        return getDatesForUser(user, predicate(after, before, Event.WRITE_MESSAGE, null));
+    }
+
+    @Override
+    public Set<Date> getDatesWhenUserDownloadedPlugin(String user, Date after, Date before) {
+        return getDatesForUser(user, predicate(after, before, Event.DOWNLOAD_PLUGIN, null));
+    }
+
+    @Override
+    public int getNumberOfAllEvents(Date after, Date before) {
+        return getAllEvents(after, before).size();
+    }
+
+    @Override
+    public Set<Event> getAllEvents(Date after, Date before) {
+        Set<Event> result = new HashSet<>();
+        scan(predicate(after, before, null, null), (segment, row) -> result.add(segment.event(row)));
+        return result;
+    }
+
+    @Override
+    public Set<Event> getEventsForIP(String ip, Date after, Date before) {
+        Set<Event> result = new HashSet<>();
+        scan(predicate(after, before, null, null), null, ip, (segment, row) -> result.add(segment.event(row)));
+        return result;
+    }
+
+    @Override
+    public Set<Event> getEventsForUser(String user, Date after, Date before) {
+        Set<Event> result = new HashSet<>();
+        scan(predicate(after, before, null, null), user, null, (segment, row) -> result.add(segment.event(row)));
+        return result;
+    }
+
+    @Override
+    public Set<Event> getFailedEvents(Date after, Date before) {
+        Set<Event> result = new HashSet<>();
+        scan(predicate(after, before, null, Status.FAILED), (segment, row) -> result.add(segment.event(row)));
+        return result;
+    }
+
+    @Override
+    public Set<Event> getErrorEvents(Date after, Date before) {
+        Set<Event> result = new HashSet<>();
+        scan(predicate(after, before, null, Status.ERROR), (segment, row) -> result.add(segment.event(row)));
+        return result;
+    }
+
+    @Override
+    public int getNumberOfAttemptToSolveTask(int task, Date after, Date before) {
+        return count(predicate(after, before, Event.SOLVE_TASK, null, task));
+    }
+
+    @Override
+    public int getNumberOfSuccessfulAttemptToSolveTask(int task, Date after, Date before) {
+        return count(predicate(after, before, Event.DONE_TASK, null, task));
+    }
+
+    @Override
+    public Map<Integer, Integer> getAllSolvedTasksAndTheirNumber(Date after, Date before) {
+        return getTasksAndTheirNumber(predicate(after, before, Event.SOLVE_TASK, null));
+    }
+
+    @Override
+    public Map<Integer, Integer> getAllDoneTasksAndTheirNumber(Date after, Date before) {
+        return getTasksAndTheirNumber(predicate(after, before, Event.DONE_TASK, null));
+    }
+
+    @Override
+    public Map<Integer, TaskConversion> getTaskConversions(Date after, Date before) {
+        List<TaskFunnel.Step> steps = new ArrayList<>();
+        RowConsumer collector = (segment, row) -> steps.add(new TaskFunnel.Step(segment.user(row),
+                segment.timestamp(row), segment.event(row), segment.task(row), segment.status(row)));
+        scan(predicate(after, before, Event.SOLVE_TASK, null), collector);
+        scan(predicate(after, before, Event.DONE_TASK, null), collector);
+        return TaskFunnel.conversions(steps);
+    }
+
+    @Override
+    public Set<Object> execute(String query) {
+        Set<Object> result = new HashSet<>();
+        execute(parseQuery(query), result);
+        return result;
+    }
+
+    /**
+     * Runs a QL query and returns how it was answered instead of its result.
+     */
+    public QueryPlan explain(String query) {
+        return execute(parseQuery(query), new HashSet<>());
+    }
+
+    /**
+     * Reports the plan of every query scan, including those of the typed query methods,
+     * to {@code planListener}; {@code null} turns reporting off.
+     */
+    public void setPlanListener(Consumer<QueryPlan> planListener) {
+        this.planListener = planListener;
+    }
+
+    public boolean addLogLine(String line) {
+        synchronized (ingestLock) {
+            LogEntity logEntity = readLine(line);
+            if (logEntity == null) {
+                return false;
+            }
+            if (tail == null) {
+                tail = new Segment();
+                segments.add(tail);
+            }
+            int row = tail.size();
+            add(tail, logEntity);
+            for (StandingQuery<?> standingQuery : standingQueries) {
+                standingQuery.accept(tail, row);
+            }
+            if (tail.size() == TAIL_SEGMENT_ROWS) {
+                seal(tail);
+                tail = null;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Registers a QL query whose result is kept up to date as lines are added with
+     * {@link #addLogLine(String)} or files are loaded by {@link #loadInBackground};
+     * subscribers receive every value that enters the result.
+     */
+    public StandingQuery<Object> register(String query) {
+        ParsedQuery parsedQuery = parseQuery(query);
+        if (parsedQuery.conditionField() != null) {
+            return register(predicate(parsedQuery.after(), parsedQuery.before(), null, null),
+                    (segment, row) -> matches(parsedQuery, segment, row),
+                    (segment, row) -> getCurrentValue(entity(segment, row), parsedQuery.field()));
+        }
+        return register(null, (segment, row) -> true,
+                (segment, row) -> getCurrentValue(entity(segment, row), parsedQuery.field()));
+    }
+
+    public StandingQuery<Date> registerDates(Status status, Date after, Date before) {
+        return register(predicate(after, before, null, status), (segment, row) -> true, Segment::date);
+    }
+
+    public StandingQuery<Event> registerEvents(Status status, Date after, Date before) {
+        return register(predicate(after, before, null, status), (segment, row) -> true, Segment::event);
+    }
+
+    void unregister(StandingQuery<?> standingQuery) {
+        standingQueries.remove(standingQuery);
+    }
+
+    private <T> StandingQuery<T> register(ScanPredicate predicate, StandingQuery.RowFilter filter,
+                                          StandingQuery.RowFunction<T> projection) {
+        StandingQuery<T> standingQuery = new StandingQuery<>(this, predicate, filter, projection);
+        awaitLoaded(predicate == null ? Long.MIN_VALUE : predicate.after());
+        synchronized (ingestLock) {
+            if (predicate == null) {
+                for (Segment segment : segments) {
+                    touch(segment);
+                    for (int row = 0; row < segment.size(); row++) {
+                        standingQuery.initialize(segment, row);
+                    }
+                }
+            } else {
+                scan(predicate, standingQuery::initialize);
+            }
+            standingQueries.add(standingQuery);
+        }
+        return standingQuery;
+    }
+
+    private QueryPlan execute(ParsedQuery parsedQuery, Set<Object> result) {
+        if (parsedQuery.conditionField() != null) {
+            String user = parsedQuery.conditionField().equals("user") ? parsedQuery.conditionValue() : null;
+            String ip = parsedQuery.conditionField().equals("ip") ? parsedQuery.conditionValue() : null;
+            return scan(predicate(parsedQuery.after(), parsedQuery.before(), null, null), user, ip, (segment, row) -> {
+                if (matches(parsedQuery, segment, row)) {
+                    result.add(getCurrentValue(entity(segment, row), parsedQuery.field()));
+                }
+            });
+        }
+        awaitLoaded(Long.MIN_VALUE);
+        long rows = 0;
+        for (Segment segment : segments) {
+            touch(segment);
+            int size = segment.size();
+            for (int row = 0; row < size; row++) {
+                result.add(getCurrentValue(entity(segment, row), parsedQuery.field()));
+            }
+            rows += size;
+        }
+        return new QueryPlan(QueryPlan.AccessPath.FULL_SCAN, rows, rows, rows, Double.POSITIVE_INFINITY,
+                Double.POSITIVE_INFINITY);
+    }
+
+    private Set<String> getUsersForEvent(ScanPredicate predicate) {
+        Set<String> result = new HashSet<>();
+        scan(predicate, (segment, row) -> result.add(segment.user(row)));
+        return result;
+    }
+
+    private Set<Date> getDatesForUser(String user, ScanPredicate predicate) {
+        Set<Date> result = new HashSet<>();
+        scan(predicate, user, null, (segment, row) -> result.add(segment.date(row)));
+        return result;
+    }
+
+    private Date getFirstDateForUser(String user, ScanPredicate predicate) {
+        long[] minTimestamp = {Long.MAX_VALUE};
+        scan(predicate, user, null, (segment, row) -> {
+            if (segment.timestamp(row) < minTimestamp[0]) {
+                minTimestamp[0] = segment.timestamp(row);
+            }
+        });
+        return minTimestamp[0] == Long.MAX_VALUE ? null : new Date(minTimestamp[0]);
+    }
+
+    private Map<Integer, Integer> getTasksAndTheirNumber(ScanPredicate predicate) {
+        Map<Integer, Integer> result = new HashMap<>();
+        scan(predicate, (segment, row) -> result.merge(segment.task(row), 1, Integer::sum));
+        return result;
+    }
+
+    private static List<Path> listLogFiles(Path logDir) {
+        List<Path> logFiles = new ArrayList<>();
+        try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(logDir)) {
+            for (Path file : directoryStream) {
+                if (file.toString().toLowerCase().endsWith(".log")) {
+                    logFiles.add(file);
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return logFiles;
+    }
+
+    private void readLogs(Collection<Path> logFiles) {
+        for (Path file : logFiles) {
+            try {
+                readLogFile(file);
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void readLogFile(Path file) throws IOException {
+        Segment segment = new Segment();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file.toFile()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                LogEntity logEntity = readLine(line);
+                if (logEntity != null) {
+                    add(segment, logEntity);
+                }
+            }
+        }
+        if (segment.size() > 0) {
+            synchronized (ingestLock) {
+                segments.add(segment);
+                for (StandingQuery<?> standingQuery : standingQueries) {
+                    for (int row = 0; row < segment.size(); row++) {
+                        standingQuery.accept(segment, row);
+                    }
+                }
+            }
+            seal(segment);
+        }
+    }
+
+    private void seal(Segment segment) {
+        segment.seal();
+        statistics.add(segment);
+        MemoryManager manager = memoryManager;
+        if (manager != null) {
+            manager.add(segment);
+        }
+    }
+
+    private void touch(Segment segment) {
+        MemoryManager manager = memoryManager;
+        if (manager != null && segment.index() != null) {
+            manager.touch(segment);
+        }
+    }
+
+    /**
+     * Parses one log line, or returns {@code null} when it does not have five fields,
+     * its event or status is unknown, or its task number is not a number.
+     */
+    private LogEntity readLine(String line) {
+        String[] params = line.split("\t");
+
+        if (params.length != 5) {
+            return null;
+        }
+
+        String ip = params[0];
+        String user = params[1];
+        Date date = readDate(params[2]);
+        Event event = readEvent(params[3]);
+        Status status = readStatus(params[4]);
+        if (event == null || status == null) {
+            return null;
+        }
+        int eventAdditionalParameter = -1;
+        if (event.equals(Event.SOLVE_TASK) || event.equals(Event.DONE_TASK)) {
+            try {
+                eventAdditionalParameter = readAdditionalParameter(params[3]);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        return new LogEntity(ip, user, date, event, eventAdditionalParameter, status);
+    }
+
+    /**
+     * Returns the newest timestamp among the lines of {@code file} that {@link #readLine(String)}
+     * may accept, without parsing the rest of them. Every line is read, since files need not
+     * be in time order. A line without a date counts as {@link #NO_DATE_LOADED}, so queries
+     * over all rows still wait for it, and a file that cannot be read gets
+     * {@link Long#MAX_VALUE}, so no window counts as loaded before it has been tried.
+     */
+    private long readLastTimestamp(Path file) {
+        long last = Long.MIN_VALUE;
+        try (BufferedReader reader = new BufferedReader(new FileReader(file.toFile()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] params = line.split("\t");
+                if (params.length == 5) {
+                    Date date = readDate(params[2]);
+                    last = Math.max(last, date == null ? NO_DATE_LOADED : date.getTime());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            return Long.MAX_VALUE;
+        }
+        return last;
+    }
+
+    private static void add(Segment segment, LogEntity logEntity) {
+        segment.add(logEntity.ip(), logEntity.user(), logEntity.date(), logEntity.event(),
+                logEntity.eventAdditionalParameter(), logEntity.status());
+    }
+
+    private Date readDate(String lineToParse) {
+        Date date = null;
+        try {
+            date = simpleDateFormat.get().parse(lineToParse);
+        } catch (ParseException ignored) {
+        }
+        return date;
+    }
+
+    private Event readEvent(String lineToParse) {
+        Event event = null;
+        if (lineToParse.contains("SOLVE_TASK")) {
+            event = Event.SOLVE_TASK;
+        } else if (lineToParse.contains("DONE_TASK")) {
+            event = Event.DONE_TASK;
+        } else {
+            switch (lineToParse) {
+                case "LOGIN": {
+                    event = Event.LOGIN;
+                    break;
+                }
+                case "DOWNLOAD_PLUGIN": {
+                    event = Event.DOWNLOAD_PLUGIN;
+                    break;
+                }
+                case "WRITE_MESSAGE": {
+                    event = Event.WRITE_MESSAGE;
+                    break;
+                }
+            }
+        }
+        return event;
+    }
+
+    private int readAdditionalParameter(String lineToParse) {
+        if (lineToParse.contains("SOLVE_TASK")) {
+            lineToParse = lineToParse.replace("SOLVE_TASK", "").replaceAll(" ", "");
+        } else {
+            lineToParse = lineToParse.replace("DONE_TASK", "").replaceAll(" ", "");
+        }
+        return Integer.parseInt(lineToParse);
+    }
+
+    private Status readStatus(String lineToParse) {
+        Status status = null;
+        switch (lineToParse) {
+            case "OK": {
+                status = Status.OK;
+                break;
+            }
+            case "FAILED": {
+                status = Status.FAILED;
+                break;
+            }
+            case "ERROR": {
+                status = Status.ERROR;
+                break;
+            }
+        }
+        return status;
+    }
+
+    private ParsedQuery parseQuery(String query) {
+        String conditionField = null;
+        String conditionValue = null;
+        Date after = null;
+        Date before = null;
+        Matcher matcher = QUERY_PATTERN.matcher(query);
+        if (!matcher.find()) {
+            throw new IllegalArgumentException("Invalid query: " + query);
+        }
+        String field = matcher.group(1);
+        if (matcher.group(2) != null) {
+            conditionField = matcher.group(3);
+            conditionValue = matcher.group(4);
+            if (matcher.group(5) != null) {
+                try {
+                    after = simpleDateFormat.get().parse(matcher.group(6));
+                    before = simpleDateFormat.get().parse(matcher.group(7));
+                } catch (ParseException ignored) {
+                }
+            }
+        }
+        Date conditionDate = "date".equals(conditionField) ? readDate(conditionValue) : null;
+        return new ParsedQuery(field, conditionField, conditionValue, conditionDate, after, before);
+    }
+
+    private boolean matches(ParsedQuery parsedQuery, Segment segment, int row) {
+        if (parsedQuery.conditionField().equals("date")) {
+            return parsedQuery.conditionDate() != null
+                    && segment.timestamp(row) == parsedQuery.conditionDate().getTime();
+        }
+        return parsedQuery.conditionValue()
+                .equals(getCurrentValue(entity(segment, row), parsedQuery.conditionField()).toString());
+    }
+
+    private ScanPredicate predicate(Date after, Date before, Event event, Status status) {
+        return predicate(after, before, event, status, ScanPredicate.ANY_TASK);
+    }
+
+    private ScanPredicate predicate(Date after, Date before, Event event, Status status, int task) {
+        return new ScanPredicate(after == null ? 0 : after.getTime(),
+                before == null ? Long.MAX_VALUE : before.getTime(),
+                event == null ? ScanPredicate.ANY_CODE : Segment.code(event),
+                status == null ? ScanPredicate.ANY_CODE : Segment.code(status),
+                task);
+    }
+
+    private int count(ScanPredicate predicate) {
+        awaitLoaded(predicate.after());
+        QueryPlan plan = queryPlanner.plan(predicate, null, null, segments);
+        if (plan.accessPath() != QueryPlan.AccessPath.FULL_SCAN) {
+            int[] quantity = {0};
+            scan(plan, predicate, null, null, (segment, row) -> quantity[0]++);
+            return quantity[0];
+        }
+        int quantity = 0;
+        for (Segment segment : segments) {
+            SegmentIndex index = segment.index();
+            if (index != null && !index.mayMatch(predicate)) {
+                continue;
+            }
+            touch(segment);
+            int size = segment.size();
+            quantity += segment.count(scanKernel, 0, size, predicate);
+        }
+        report(plan.withActualRows(quantity));
+        return quantity;
+    }
+
+    private QueryPlan scan(ScanPredicate predicate, RowConsumer consumer) {
+        return scan(predicate, null, null, consumer);
+    }
+
+    private QueryPlan scan(ScanPredicate predicate, String user, String ip, RowConsumer consumer) {
+        awaitLoaded(predicate.after());
+        return scan(queryPlanner.plan(predicate, user, ip, segments), predicate, user, ip, consumer);
+    }
+
+    private QueryPlan scan(QueryPlan plan, ScanPredicate predicate, String user, String ip, RowConsumer consumer) {
+        long[] actualRows = {0};
+        RowConsumer counter = (segment, row) -> {
+            actualRows[0]++;
+            consumer.accept(segment, row);
+        };
+        for (Segment segment : segments) {
+            SegmentIndex index = segment.index();
+            if (index != null && (!index.mayMatch(predicate)
+                    || user != null && !index.mightContainUser(user)
+                    || ip != null && !index.mightContainIp(ip))) {
+                continue;
+            }
+            touch(segment);
+            SegmentLookup lookup = segment.lookup();
+            if (lookup == null || plan.accessPath() == QueryPlan.AccessPath.FULL_SCAN) {
+                scanSequentially(segment, predicate, user, ip, counter);
+            } else if (plan.accessPath() == QueryPlan.AccessPath.TIME_SLICE_SCAN) {
+                int to = lookup.firstNotBefore(predicate.before());
+                for (int i = lookup.firstAfter(predicate.after()); i < to; i++) {
+                    acceptIfMatches(segment, lookup.rowByTime(i), predicate, user, ip, counter);
+                }
+            } else {
+                int[] rows = user != null ? lookup.rowsForUser(user) : lookup.rowsForIp(ip);
+                if (user != null && ip != null && lookup.rowsForIp(ip).length < rows.length) {
+                    rows = lookup.rowsForIp(ip);
+                }
+                for (int row : rows) {
+                    acceptIfMatches(segment, row, predicate, user, ip, counter);
+                }
+            }
+        }
+        QueryPlan result = plan.withActualRows(actualRows[0]);
+        report(result);
+        return result;
+    }
+
+    private void scanSequentially(Segment segment, ScanPredicate predicate, String user, String ip,
+                                  RowConsumer consumer) {
+        int[] rows = new int[SCAN_BATCH];
+        int size = segment.size();
+        for (int from = 0; from < size; from += SCAN_BATCH) {
+            int to = Math.min(from + SCAN_BATCH, size);
+            int quantity = segment.select(scanKernel, from, to, predicate, rows);
+            for (int i = 0; i < quantity; i++) {
+                int row = rows[i];
+                if ((user == null || user.equals(segment.user(row)))
+                        && (ip == null || ip.equals(segment.ip(row)))) {
+                    consumer.accept(segment, row);
+                }
+            }
+        }
+    }
+
+    private void acceptIfMatches(Segment segment, int row, ScanPredicate predicate, String user, String ip,
+                                 RowConsumer consumer) {
+        if (predicate.test(segment.timestamp(row), segment.eventCode(row), segment.statusCode(row), segment.task(row))
+                && (user == null || user.equals(segment.user(row)))
+                && (ip == null || ip.equals(segment.ip(row)))) {
+            consumer.accept(segment, row);
+        }
+    }
+
+    private void setLoaded(int files, long after) {
+        synchronized (loadMonitor) {
+            filesLoaded = files;
+            loadedAfter = after;
+            loadMonitor.notifyAll();
+        }
+    }
+
+    private boolean isLoaded(long after) {
+        return after >= loadedAfter;
+    }
+
+    private void awaitLoaded(long after) {
+        if (loadPolicy == LoadPolicy.PARTIAL || isLoaded(after)) {
+            return;
+        }
+        synchronized (loadMonitor) {
+            while (!isLoaded(after)) {
+                try {
+                    loadMonitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for logs to load", e);
+                }
+            }
+        }
+    }
+
+    private void report(QueryPlan plan) {
+        Consumer<QueryPlan> listener = planListener;
+        if (listener != null) {
+            listener.accept(plan);
+        }
+    }
+
+    private LogEntity entity(Segment segment, int row) {
+        return new LogEntity(segment.ip(row), segment.user(row), segment.date(row), segment.event(row),
+                segment.task(row), segment.status(row));
+    }
+
+    private Object getCurrentValue(LogEntity logEntity, String field) {
+        Object value = null;
+        switch (field) {
+            case "ip": {
+                Command method = new GetIpCommand(logEntity);
+                value = method.execute();
+                break;
+            }
+            case "user": {
+                Command method = new GetUserCommand(logEntity);
+                value = method.execute();
+                break;
+            }
+            case "date": {
+                Command method = new GetDateCommand(logEntity);
+                value = method.execute();
+                break;
+            }
+            case "event": {
+                Command method = new GetEventCommand(logEntity);
+                value = method.execute();
+                break;
+            }
+            case "status": {
+                Command method = new GetStatusCommand(logEntity);
+                value = method.execute();
+                break;
+            }
+        }
+        return value;
+    }
+
+    private record ParsedQuery(String field, String conditionField, String conditionValue, Date conditionDate,
+                               Date after, Date before) {
+    }
+
+    private record LogEntity(String ip, String user, Date date, Event event, int eventAdditionalParameter,
+                             Status status) {
+    }
+
+    private interface RowConsumer {
+        void accept(Segment segment, int row);
+    }
+
+    private abstract static class Command {
+        protected LogEntity logEntity;
+
+        abstract Object execute();
+    }
+
+    private static class GetIpCommand extends Command {
+        public GetIpCommand(LogEntity logEntity) {
+            this.logEntity = logEntity;
+        }
+
+        @Override
+        Object execute() {
+            return logEntity.ip();
+        }
+    }
+
+    private static class GetUserCommand extends Command {
+        public GetUserCommand(LogEntity logEntity) {
+            this.logEntity = logEntity;
+        }
+
+        @Override
+        Object execute() {
+            return logEntity.user();
+        }
+    }
+
+    private static class GetDateCommand extends Command {
+        public GetDateCommand(LogEntity logEntity) {
+            this.logEntity = logEntity;
+        }
+
+        @Override
+        Object execute() {
+            return logEntity.date();
+        }
+    }
+
+    private static class GetEventCommand extends Command {
+        public GetEventCommand(LogEntity logEntity) {
+            this.logEntity = logEntity;
+        }
+
+        @Override
+        Object execute() {
+            return logEntity.event();
+        }
+    }
+
+    private static class GetStatusCommand extends Command {
+        public GetStatusCommand(LogEntity logEntity) {
+            this.logEntity = logEntity;
+        }
+
+        @Override
+        Object execute() {
+            return logEntity.status();
+        }
+    }
+}
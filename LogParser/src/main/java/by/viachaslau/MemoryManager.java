@@ -0,0 +1,79 @@
+package by.viachaslau;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the estimated heap of sealed segments within a budget. When the budget is
+ * exceeded, the resident segment covering the oldest time range is spilled first,
+ * so recent data stays on the heap and old ranges are read from mapped files.
+ */
+class MemoryManager {
+    private final long budgetBytes;
+    private final Path spillDirectory;
+    private final List<Segment> resident = new ArrayList<>();
+    private long residentBytes;
+    private int spilledSegments;
+    private long spilledBytes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    MemoryManager(long budgetBytes, Path spillDirectory) {
+        this.budgetBytes = budgetBytes;
+        this.spillDirectory = spillDirectory;
+    }
+
+    /**
+     * Starts counting a sealed segment against the budget; a segment already added or
+     * spilled is ignored.
+     */
+    synchronized void add(Segment segment) {
+        if (resident.contains(segment) || !segment.isResident()) {
+            return;
+        }
+        resident.add(segment);
+        residentBytes += segment.estimatedBytes();
+        evict();
+    }
+
+    /**
+     * Counts a query touching {@code segment}, as a miss when it is read from its spill file.
+     * Called by every scan for every segment, so it takes no lock.
+     */
+    void touch(Segment segment) {
+        if (segment.isResident()) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+    }
+
+    synchronized SpillMetrics metrics() {
+        return new SpillMetrics(budgetBytes, residentBytes, resident.size(), spilledSegments, spilledBytes,
+                hits.sum(), misses.sum());
+    }
+
+    private void evict() {
+        while (residentBytes > budgetBytes && !resident.isEmpty()) {
+            Segment oldest = resident.get(0);
+            for (Segment segment : resident) {
+                if (segment.index().lastTimestamp() < oldest.index().lastTimestamp()) {
+                    oldest = segment;
+                }
+            }
+            try {
+                oldest.spill(spillDirectory);
+            } catch (IOException e) {
+                e.printStackTrace();
+                return;
+            }
+            resident.remove(oldest);
+            residentBytes -= oldest.estimatedBytes();
+            spilledSegments++;
+            spilledBytes += oldest.estimatedBytes();
+        }
+    }
+}
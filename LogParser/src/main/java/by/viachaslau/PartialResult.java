@@ -0,0 +1,4 @@
+package by.viachaslau;
+
+public record PartialResult<T>(T value, boolean partial) {
+}
@@ -0,0 +1,27 @@
+package by.viachaslau;
+
+/**
+ * How a query was answered: the access path the planner chose, the estimated cost
+ * of every path it considered, and the estimated and actual number of matching rows.
+ * An index lookup is only possible for queries on a user or an IP; otherwise its
+ * cost is infinite.
+ */
+public record QueryPlan(AccessPath accessPath, long estimatedRows, long actualRows,
+                        double fullScanCost, double timeSliceScanCost, double indexLookupCost) {
+    public enum AccessPath {
+        FULL_SCAN,
+        TIME_SLICE_SCAN,
+        INDEX_LOOKUP
+    }
+
+    QueryPlan withActualRows(long actualRows) {
+        return new QueryPlan(accessPath, estimatedRows, actualRows, fullScanCost, timeSliceScanCost, indexLookupCost);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (rows: estimated %d, actual %d; cost: full scan %.0f, time slice scan %.0f,"
+                        + " index lookup %.0f)",
+                accessPath, estimatedRows, actualRows, fullScanCost, timeSliceScanCost, indexLookupCost);
+    }
+}
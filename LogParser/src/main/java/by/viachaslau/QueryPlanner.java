@@ -0,0 +1,61 @@
+package by.viachaslau;
+
+import by.viachaslau.scan.ScanPredicate;
+
+import java.util.List;
+
+/**
+ * Chooses between a sequential scan of every segment that may match, a time-slice
+ * scan of the rows inside the window and an index lookup of a user's or IP's rows.
+ * Sequential rows are cheap because they are compared a vector at a time; rows
+ * reached through a time order or a posting list are charged as random accesses.
+ * Unsealed segments have no access paths and are always scanned sequentially.
+ */
+class QueryPlanner {
+    private static final double SEQUENTIAL_ROW_COST = 1;
+    private static final double RANDOM_ROW_COST = 4;
+
+    private final Statistics statistics;
+
+    QueryPlanner(Statistics statistics) {
+        this.statistics = statistics;
+    }
+
+    QueryPlan plan(ScanPredicate predicate, String user, String ip, List<Segment> segments) {
+        long candidateRows = 0;
+        long unsealedRows = 0;
+        for (Segment segment : segments) {
+            SegmentIndex index = segment.index();
+            if (index == null) {
+                unsealedRows += segment.size();
+            } else if (index.mayMatch(predicate)
+                    && (user == null || index.mightContainUser(user))
+                    && (ip == null || index.mightContainIp(ip))) {
+                candidateRows += segment.size();
+            }
+        }
+        double unsealedCost = unsealedRows * SEQUENTIAL_ROW_COST;
+        double fullScanCost = candidateRows * SEQUENTIAL_ROW_COST + unsealedCost;
+        double timeSliceScanCost = statistics.rowsInWindow(predicate.after(), predicate.before()) * RANDOM_ROW_COST
+                + unsealedCost;
+        double indexLookupCost = Double.POSITIVE_INFINITY;
+        if (user != null) {
+            indexLookupCost = statistics.rowsForUser(user) * RANDOM_ROW_COST + unsealedCost;
+        }
+        if (ip != null) {
+            indexLookupCost = Math.min(indexLookupCost, statistics.rowsForIp(ip) * RANDOM_ROW_COST + unsealedCost);
+        }
+
+        QueryPlan.AccessPath accessPath = QueryPlan.AccessPath.FULL_SCAN;
+        double cost = fullScanCost;
+        if (timeSliceScanCost < cost) {
+            accessPath = QueryPlan.AccessPath.TIME_SLICE_SCAN;
+            cost = timeSliceScanCost;
+        }
+        if (indexLookupCost < cost) {
+            accessPath = QueryPlan.AccessPath.INDEX_LOOKUP;
+        }
+        long estimatedRows = Math.round(statistics.estimateRows(predicate, user, ip));
+        return new QueryPlan(accessPath, estimatedRows, -1, fullScanCost, timeSliceScanCost, indexLookupCost);
+    }
+}
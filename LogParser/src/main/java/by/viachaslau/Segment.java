@@ -0,0 +1,209 @@
+package by.viachaslau;
+
+import by.viachaslau.scan.ScanKernel;
+import by.viachaslau.scan.ScanPredicate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Rows of one log file stored column by column, so that time-window and
+ * event/status predicates can be evaluated over primitive arrays.
+ * <p>
+ * A segment has a single writer. Readers take {@link #size()} first and then only
+ * look at rows below it: the volatile size is written after the row, and grown
+ * arrays are copied into new {@link Columns} published through a volatile field
+ * before any row is written to them, so those rows are always visible.
+ * <p>
+ * A sealed segment can be spilled: its columns are written to a {@link SpillFile}
+ * and dropped from the heap, while its {@link SegmentIndex} stays resident. From then
+ * on rows are read from the mapped file, so the segment never comes back onto the heap.
+ */
+class Segment {
+    static final long NO_DATE = Long.MIN_VALUE;
+    static final byte NO_CODE = -1;
+    private static final int INITIAL_CAPACITY = 256;
+    private static final long ROW_BYTES = 128;
+    private static final Event[] EVENTS = Event.values();
+    private static final Status[] STATUSES = Status.values();
+
+    private volatile Columns columns = new Columns(INITIAL_CAPACITY);
+    private volatile int size;
+    private volatile SegmentIndex index;
+    private volatile SpillFile spillFile;
+
+    void add(String ip, String user, Date date, Event event, int task, Status status) {
+        Columns columns = this.columns;
+        if (size == columns.timestamps.length) {
+            columns = columns.grow();
+            this.columns = columns;
+        }
+        columns.ips[size] = ip;
+        columns.users[size] = user;
+        columns.timestamps[size] = date == null ? NO_DATE : date.getTime();
+        columns.events[size] = code(event);
+        columns.tasks[size] = task;
+        columns.statuses[size] = code(status);
+        size++;
+    }
+
+    void seal() {
+        Columns columns = this.columns;
+        columns.lookup = SegmentLookup.build(size, columns.ips, columns.users, columns.timestamps);
+        index = SegmentIndex.build(this);
+    }
+
+    /**
+     * Returns the index built when the segment was sealed, or {@code null} while rows
+     * may still be added.
+     */
+    SegmentIndex index() {
+        return index;
+    }
+
+    /**
+     * Returns the time order and posting lists built when the segment was sealed,
+     * or {@code null} while rows may still be added.
+     */
+    SegmentLookup lookup() {
+        Columns columns = this.columns;
+        return columns != null ? columns.lookup : spillFile.lookup();
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Estimates the heap the resident columns take, strings included.
+     */
+    long estimatedBytes() {
+        return size * ROW_BYTES;
+    }
+
+    boolean isResident() {
+        return columns != null;
+    }
+
+    /**
+     * Writes the columns of a sealed segment to a new file in {@code directory}, maps
+     * it and drops the columns from the heap.
+     */
+    synchronized void spill(Path directory) throws IOException {
+        Columns columns = this.columns;
+        if (columns == null) {
+            return;
+        }
+        spillFile = SpillFile.create(directory, size, columns);
+        this.columns = null;
+    }
+
+    String ip(int row) {
+        Columns columns = this.columns;
+        return columns != null ? columns.ips[row] : spillFile.ip(row);
+    }
+
+    String user(int row) {
+        Columns columns = this.columns;
+        return columns != null ? columns.users[row] : spillFile.user(row);
+    }
+
+    Date date(int row) {
+        long timestamp = timestamp(row);
+        return timestamp == NO_DATE ? null : new Date(timestamp);
+    }
+
+    long timestamp(int row) {
+        Columns columns = this.columns;
+        return columns != null ? columns.timestamps[row] : spillFile.timestamp(row);
+    }
+
+    Event event(int row) {
+        byte event = eventCode(row);
+        return event == NO_CODE ? null : EVENTS[event];
+    }
+
+    byte eventCode(int row) {
+        Columns columns = this.columns;
+        return columns != null ? columns.events[row] : spillFile.eventCode(row);
+    }
+
+    byte statusCode(int row) {
+        Columns columns = this.columns;
+        return columns != null ? columns.statuses[row] : spillFile.statusCode(row);
+    }
+
+    int task(int row) {
+        Columns columns = this.columns;
+        return columns != null ? columns.tasks[row] : spillFile.task(row);
+    }
+
+    Status status(int row) {
+        byte status = statusCode(row);
+        return status == NO_CODE ? null : STATUSES[status];
+    }
+
+    /**
+     * Counts the rows in {@code [from, to)} matching {@code predicate}. Resident columns
+     * are scanned by {@code kernel}; a spilled segment is scanned row by row from its
+     * mapping, since the vector kernel only loads from arrays.
+     */
+    int count(ScanKernel kernel, int from, int to, ScanPredicate predicate) {
+        Columns columns = this.columns;
+        if (columns == null) {
+            return spillFile.count(from, to, predicate);
+        }
+        return kernel.count(columns.timestamps, columns.events, columns.statuses, columns.tasks,
+                from, to, predicate);
+    }
+
+    /**
+     * Stores the rows in {@code [from, to)} matching {@code predicate} into {@code rows}
+     * and returns how many there are, scanning like {@link #count}.
+     */
+    int select(ScanKernel kernel, int from, int to, ScanPredicate predicate, int[] rows) {
+        Columns columns = this.columns;
+        if (columns == null) {
+            return spillFile.select(from, to, predicate, rows);
+        }
+        return kernel.select(columns.timestamps, columns.events, columns.statuses, columns.tasks,
+                from, to, predicate, rows);
+    }
+
+    static byte code(Enum<?> value) {
+        return value == null ? NO_CODE : (byte) value.ordinal();
+    }
+
+    static class Columns {
+        final String[] ips;
+        final String[] users;
+        final long[] timestamps;
+        final byte[] events;
+        final int[] tasks;
+        final byte[] statuses;
+        SegmentLookup lookup;
+
+        Columns(int capacity) {
+            this(new String[capacity], new String[capacity], new long[capacity], new byte[capacity],
+                    new int[capacity], new byte[capacity]);
+        }
+
+        Columns(String[] ips, String[] users, long[] timestamps, byte[] events, int[] tasks, byte[] statuses) {
+            this.ips = ips;
+            this.users = users;
+            this.timestamps = timestamps;
+            this.events = events;
+            this.tasks = tasks;
+            this.statuses = statuses;
+        }
+
+        private Columns grow() {
+            int capacity = timestamps.length * 2;
+            return new Columns(Arrays.copyOf(ips, capacity), Arrays.copyOf(users, capacity),
+                    Arrays.copyOf(timestamps, capacity), Arrays.copyOf(events, capacity),
+                    Arrays.copyOf(tasks, capacity), Arrays.copyOf(statuses, capacity));
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package by.viachaslau;
+
+import by.viachaslau.scan.ScanPredicate;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Lets a query skip a whole segment: zone maps hold the timestamp range and the
+ * event and status codes present, Bloom filters the users, IPs and tasks.
+ */
+class SegmentIndex {
+    private final long firstTimestamp;
+    private final long lastTimestamp;
+    private final int eventMask;
+    private final int statusMask;
+    private final BloomFilter users;
+    private final BloomFilter ips;
+    private final BloomFilter tasks;
+
+    private SegmentIndex(long firstTimestamp, long lastTimestamp, int eventMask, int statusMask,
+                         BloomFilter users, BloomFilter ips, BloomFilter tasks) {
+        this.firstTimestamp = firstTimestamp;
+        this.lastTimestamp = lastTimestamp;
+        this.eventMask = eventMask;
+        this.statusMask = statusMask;
+        this.users = users;
+        this.ips = ips;
+        this.tasks = tasks;
+    }
+
+    static SegmentIndex build(Segment segment) {
+        long firstTimestamp = Long.MAX_VALUE;
+        long lastTimestamp = Long.MIN_VALUE;
+        int eventMask = 0;
+        int statusMask = 0;
+        Set<String> distinctUsers = new HashSet<>();
+        Set<String> distinctIps = new HashSet<>();
+        Set<Integer> distinctTasks = new HashSet<>();
+        int size = segment.size();
+        for (int row = 0; row < size; row++) {
+            long timestamp = segment.timestamp(row);
+            if (timestamp != Segment.NO_DATE) {
+                firstTimestamp = Math.min(firstTimestamp, timestamp);
+                lastTimestamp = Math.max(lastTimestamp, timestamp);
+            }
+            eventMask |= mask(segment.eventCode(row));
+            statusMask |= mask(segment.statusCode(row));
+            distinctUsers.add(segment.user(row));
+            distinctIps.add(segment.ip(row));
+            distinctTasks.add(segment.task(row));
+        }
+        return new SegmentIndex(firstTimestamp, lastTimestamp, eventMask, statusMask,
+                bloomFilter(distinctUsers), bloomFilter(distinctIps), bloomFilter(distinctTasks));
+    }
+
+    long firstTimestamp() {
+        return firstTimestamp;
+    }
+
+    long lastTimestamp() {
+        return lastTimestamp;
+    }
+
+    boolean mayMatch(ScanPredicate predicate) {
+        return lastTimestamp > predicate.after() && firstTimestamp < predicate.before()
+                && (predicate.event() == ScanPredicate.ANY_CODE || (eventMask & mask(predicate.event())) != 0)
+                && (predicate.status() == ScanPredicate.ANY_CODE || (statusMask & mask(predicate.status())) != 0)
+                && (predicate.task() == ScanPredicate.ANY_TASK || tasks.mightContain(predicate.task()));
+    }
+
+    boolean mightContainUser(String user) {
+        return users.mightContain(user);
+    }
+
+    boolean mightContainIp(String ip) {
+        return ips.mightContain(ip);
+    }
+
+    private static int mask(byte code) {
+        return code == Segment.NO_CODE ? 0 : 1 << code;
+    }
+
+    private static BloomFilter bloomFilter(Set<?> keys) {
+        BloomFilter bloomFilter = new BloomFilter(keys.size());
+        for (Object key : keys) {
+            bloomFilter.add(key);
+        }
+        return bloomFilter;
+    }
+}
@@ -0,0 +1,159 @@
+package by.viachaslau;
+
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Row-level access paths of a sealed segment: its rows ordered by time, for
+ * time-slice scans, and the rows of every user and IP, for index lookups. The
+ * paths are read through buffers, so a spilled segment serves them straight
+ * from its mapped {@link SpillFile}.
+ */
+class SegmentLookup {
+    private static final int[] NO_ROWS = new int[0];
+
+    private final LongBuffer timestamps;
+    private final IntBuffer rowsByTime;
+    private final Postings userRows;
+    private final Postings ipRows;
+
+    SegmentLookup(LongBuffer timestamps, IntBuffer rowsByTime, Postings userRows, Postings ipRows) {
+        this.timestamps = timestamps;
+        this.rowsByTime = rowsByTime;
+        this.userRows = userRows;
+        this.ipRows = ipRows;
+    }
+
+    static SegmentLookup build(int size, String[] ips, String[] users, long[] timestamps) {
+        int[] rowsByTime = IntStream.range(0, size).boxed()
+                .sorted(Comparator.comparingLong(row -> timestamps[row]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        return new SegmentLookup(LongBuffer.wrap(timestamps), IntBuffer.wrap(rowsByTime),
+                Postings.group(size, row -> users[row]), Postings.group(size, row -> ips[row]));
+    }
+
+    int[] rowsForUser(String user) {
+        return userRows.rows(user);
+    }
+
+    int[] rowsForIp(String ip) {
+        return ipRows.rows(ip);
+    }
+
+    Postings userRows() {
+        return userRows;
+    }
+
+    Postings ipRows() {
+        return ipRows;
+    }
+
+    IntBuffer rowsByTime() {
+        return rowsByTime;
+    }
+
+    int rowByTime(int position) {
+        return rowsByTime.get(position);
+    }
+
+    /**
+     * Returns the position in {@link #rowsByTime()} of the first row whose timestamp
+     * is greater than {@code timestamp}.
+     */
+    int firstAfter(long timestamp) {
+        return timestamp == Long.MAX_VALUE ? rowsByTime.limit() : firstNotBefore(timestamp + 1);
+    }
+
+    /**
+     * Returns the position in {@link #rowsByTime()} of the first row whose timestamp
+     * is greater than or equal to {@code timestamp}.
+     */
+    int firstNotBefore(long timestamp) {
+        int low = 0;
+        int high = rowsByTime.limit();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (timestamps.get(rowsByTime.get(middle)) < timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Rows grouped by the value of one column. Values are numbered in the order they
+     * first appear; the rows of value {@code i} are {@code rows[offsets[i]]} up to
+     * {@code rows[offsets[i + 1]]}, in row order.
+     */
+    static class Postings {
+        private final String[] values;
+        private final Map<String, Integer> ids;
+        private final IntBuffer offsets;
+        private final IntBuffer rows;
+
+        Postings(String[] values, IntBuffer offsets, IntBuffer rows) {
+            this.values = values;
+            this.ids = new HashMap<>();
+            for (int id = 0; id < values.length; id++) {
+                ids.put(values[id], id);
+            }
+            this.offsets = offsets;
+            this.rows = rows;
+        }
+
+        static Postings group(int size, IntFunction<String> key) {
+            Map<String, Integer> ids = new HashMap<>();
+            int[] rowIds = new int[size];
+            int[] counts = new int[size];
+            for (int row = 0; row < size; row++) {
+                int id = ids.computeIfAbsent(key.apply(row), value -> ids.size());
+                rowIds[row] = id;
+                counts[id]++;
+            }
+            String[] values = new String[ids.size()];
+            ids.forEach((value, id) -> values[id] = value);
+            int[] offsets = new int[values.length + 1];
+            for (int id = 0; id < values.length; id++) {
+                offsets[id + 1] = offsets[id] + counts[id];
+            }
+            int[] rows = new int[size];
+            int[] filled = new int[values.length];
+            for (int row = 0; row < size; row++) {
+                int id = rowIds[row];
+                rows[offsets[id] + filled[id]++] = row;
+            }
+            return new Postings(values, IntBuffer.wrap(offsets), IntBuffer.wrap(rows));
+        }
+
+        String[] values() {
+            return values;
+        }
+
+        IntBuffer offsets() {
+            return offsets;
+        }
+
+        IntBuffer rows() {
+            return rows;
+        }
+
+        int[] rows(String value) {
+            Integer id = ids.get(value);
+            if (id == null) {
+                return NO_ROWS;
+            }
+            int from = offsets.get(id);
+            int[] result = new int[offsets.get(id + 1) - from];
+            rows.get(from, result);
+            return result;
+        }
+    }
+}
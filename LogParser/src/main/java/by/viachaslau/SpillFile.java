@@ -0,0 +1,222 @@
+package by.viachaslau;
+
+import by.viachaslau.scan.ScanPredicate;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A spilled segment's columns, memory-mapped. The file holds the primitive columns,
+ * the IPs and users as numbers into a dictionary, and the time order and posting
+ * lists of the segment's {@link SegmentLookup}. Rows are read from the mapping, so
+ * only the two dictionaries stay on the heap.
+ * <p>
+ * Every spill gets a file of its own, so parsers can share a spill directory. The
+ * file is deleted once its segment, and with it the parser, is no longer reachable.
+ */
+final class SpillFile {
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final LongBuffer timestamps;
+    private final IntBuffer tasks;
+    private final IntBuffer ipIds;
+    private final IntBuffer userIds;
+    private final ByteBuffer events;
+    private final ByteBuffer statuses;
+    private final String[] ipValues;
+    private final String[] userValues;
+    private final SegmentLookup lookup;
+
+    private SpillFile(MappedByteBuffer buffer, int size) {
+        int ipCount = buffer.getInt(0);
+        int userCount = buffer.getInt(Integer.BYTES);
+        int position = 2 * Integer.BYTES;
+        timestamps = buffer.slice(position, size * Long.BYTES).asLongBuffer();
+        position += size * Long.BYTES;
+        tasks = ints(buffer, position, size);
+        position += size * Integer.BYTES;
+        ipIds = ints(buffer, position, size);
+        position += size * Integer.BYTES;
+        userIds = ints(buffer, position, size);
+        position += size * Integer.BYTES;
+        IntBuffer rowsByTime = ints(buffer, position, size);
+        position += size * Integer.BYTES;
+        IntBuffer ipOffsets = ints(buffer, position, ipCount + 1);
+        position += (ipCount + 1) * Integer.BYTES;
+        IntBuffer ipRows = ints(buffer, position, size);
+        position += size * Integer.BYTES;
+        IntBuffer userOffsets = ints(buffer, position, userCount + 1);
+        position += (userCount + 1) * Integer.BYTES;
+        IntBuffer userRows = ints(buffer, position, size);
+        position += size * Integer.BYTES;
+        events = buffer.slice(position, size);
+        position += size;
+        statuses = buffer.slice(position, size);
+        position += size;
+        ByteBuffer dictionaries = buffer.slice(position, buffer.limit() - position);
+        ipValues = readDictionary(dictionaries, ipCount);
+        userValues = readDictionary(dictionaries, userCount);
+        lookup = new SegmentLookup(timestamps, rowsByTime,
+                new SegmentLookup.Postings(userValues, userOffsets, userRows),
+                new SegmentLookup.Postings(ipValues, ipOffsets, ipRows));
+    }
+
+    static SpillFile create(Path directory, int size, Segment.Columns columns) throws IOException {
+        Path file = Files.createTempFile(directory, "segment-", ".spill");
+        SpillFile spillFile;
+        try {
+            write(file, size, columns);
+            spillFile = map(file, size);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        file.toFile().deleteOnExit();
+        CLEANER.register(spillFile, () -> delete(file));
+        return spillFile;
+    }
+
+    private static void write(Path file, int size, Segment.Columns columns) throws IOException {
+        SegmentLookup.Postings ipRows = columns.lookup.ipRows();
+        SegmentLookup.Postings userRows = columns.lookup.userRows();
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            output.writeInt(ipRows.values().length);
+            output.writeInt(userRows.values().length);
+            for (int row = 0; row < size; row++) {
+                output.writeLong(columns.timestamps[row]);
+            }
+            for (int row = 0; row < size; row++) {
+                output.writeInt(columns.tasks[row]);
+            }
+            writeInts(output, rowIds(ipRows, size));
+            writeInts(output, rowIds(userRows, size));
+            writeInts(output, columns.lookup.rowsByTime());
+            writeInts(output, ipRows.offsets());
+            writeInts(output, ipRows.rows());
+            writeInts(output, userRows.offsets());
+            writeInts(output, userRows.rows());
+            output.write(columns.events, 0, size);
+            output.write(columns.statuses, 0, size);
+            writeDictionary(output, ipRows.values());
+            writeDictionary(output, userRows.values());
+        }
+    }
+
+    private static SpillFile map(Path file, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new SpillFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), size);
+        }
+    }
+
+    SegmentLookup lookup() {
+        return lookup;
+    }
+
+    String ip(int row) {
+        return ipValues[ipIds.get(row)];
+    }
+
+    String user(int row) {
+        return userValues[userIds.get(row)];
+    }
+
+    long timestamp(int row) {
+        return timestamps.get(row);
+    }
+
+    byte eventCode(int row) {
+        return events.get(row);
+    }
+
+    byte statusCode(int row) {
+        return statuses.get(row);
+    }
+
+    int task(int row) {
+        return tasks.get(row);
+    }
+
+    int count(int from, int to, ScanPredicate predicate) {
+        int quantity = 0;
+        for (int row = from; row < to; row++) {
+            if (predicate.test(timestamps.get(row), events.get(row), statuses.get(row), tasks.get(row))) {
+                quantity++;
+            }
+        }
+        return quantity;
+    }
+
+    int select(int from, int to, ScanPredicate predicate, int[] rows) {
+        int quantity = 0;
+        for (int row = from; row < to; row++) {
+            if (predicate.test(timestamps.get(row), events.get(row), statuses.get(row), tasks.get(row))) {
+                rows[quantity++] = row;
+            }
+        }
+        return quantity;
+    }
+
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static IntBuffer ints(MappedByteBuffer buffer, int position, int length) {
+        return buffer.slice(position, length * Integer.BYTES).asIntBuffer();
+    }
+
+    private static int[] rowIds(SegmentLookup.Postings postings, int size) {
+        int[] rowIds = new int[size];
+        IntBuffer offsets = postings.offsets();
+        IntBuffer rows = postings.rows();
+        for (int id = 0; id < postings.values().length; id++) {
+            for (int i = offsets.get(id); i < offsets.get(id + 1); i++) {
+                rowIds[rows.get(i)] = id;
+            }
+        }
+        return rowIds;
+    }
+
+    private static void writeInts(DataOutputStream output, int[] values) throws IOException {
+        for (int value : values) {
+            output.writeInt(value);
+        }
+    }
+
+    private static void writeInts(DataOutputStream output, IntBuffer values) throws IOException {
+        for (int i = 0; i < values.limit(); i++) {
+            output.writeInt(values.get(i));
+        }
+    }
+
+    private static void writeDictionary(DataOutputStream output, String[] values) throws IOException {
+        for (String value : values) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+    }
+
+    private static String[] readDictionary(ByteBuffer buffer, int count) {
+        String[] dictionary = new String[count];
+        for (int i = 0; i < count; i++) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            dictionary[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return dictionary;
+    }
+}
@@ -0,0 +1,10 @@
+package by.viachaslau;
+
+/**
+ * Heap use of a {@link LogParser} running under a memory budget. A hit is a query
+ * touching a resident segment, a miss one that read a spilled segment from its mapped
+ * file; {@code spilledBytes} is the estimated heap the spilled segments gave up.
+ */
+public record SpillMetrics(long budgetBytes, long residentBytes, int residentSegments, int spilledSegments,
+                           long spilledBytes, long hits, long misses) {
+}
@@ -0,0 +1,89 @@
+package by.viachaslau;
+
+import by.viachaslau.scan.ScanPredicate;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A query result that {@link LogParser} keeps up to date as lines are added. Every
+ * added row costs one predicate check per standing query; a value that enters the
+ * result is published to the subscribers. Results only grow, so a delta is always
+ * one new value. Null values are kept in the snapshot but not published.
+ * <p>
+ * Publishing never blocks the adding thread: a subscriber whose buffer is full misses
+ * the value, which is counted by {@link #getDroppedValues()} and remains in the
+ * {@link #snapshot()}.
+ */
+public class StandingQuery<T> implements Flow.Publisher<T>, AutoCloseable {
+    private final LogParser logParser;
+    private final ScanPredicate predicate;
+    private final RowFilter filter;
+    private final RowFunction<T> projection;
+    private final Set<T> result = Collections.synchronizedSet(new HashSet<>());
+    private final SubmissionPublisher<T> publisher = new SubmissionPublisher<>();
+    private final AtomicLong droppedValues = new AtomicLong();
+
+    StandingQuery(LogParser logParser, ScanPredicate predicate, RowFilter filter, RowFunction<T> projection) {
+        this.logParser = logParser;
+        this.predicate = predicate;
+        this.filter = filter;
+        this.projection = projection;
+    }
+
+    public Set<T> snapshot() {
+        synchronized (result) {
+            return new HashSet<>(result);
+        }
+    }
+
+    public long getDroppedValues() {
+        return droppedValues.get();
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        publisher.subscribe(subscriber);
+    }
+
+    @Override
+    public void close() {
+        logParser.unregister(this);
+        publisher.close();
+    }
+
+    void initialize(Segment segment, int row) {
+        if (filter.test(segment, row)) {
+            result.add(projection.apply(segment, row));
+        }
+    }
+
+    void accept(Segment segment, int row) {
+        if (predicate != null && !predicate.test(segment.timestamp(row), segment.eventCode(row),
+                segment.statusCode(row), segment.task(row))) {
+            return;
+        }
+        if (!filter.test(segment, row)) {
+            return;
+        }
+        T value = projection.apply(segment, row);
+        if (result.add(value) && value != null) {
+            publisher.offer(value, (subscriber, dropped) -> {
+                droppedValues.incrementAndGet();
+                return false;
+            });
+        }
+    }
+
+    interface RowFilter {
+        boolean test(Segment segment, int row);
+    }
+
+    interface RowFunction<T> {
+        T apply(Segment segment, int row);
+    }
+}
@@ -0,0 +1,102 @@
+package by.viachaslau;
+
+import by.viachaslau.scan.ScanPredicate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Row counts per user, IP, event, status, task and day of all sealed segments,
+ * used to estimate how many rows a predicate selects.
+ */
+class Statistics {
+    private static final long BUCKET_MILLIS = 24L * 60 * 60 * 1000;
+
+    private final AtomicLong rows = new AtomicLong();
+    private final Map<String, Integer> userRows = new ConcurrentHashMap<>();
+    private final Map<String, Integer> ipRows = new ConcurrentHashMap<>();
+    private final Map<Integer, Integer> taskRows = new ConcurrentHashMap<>();
+    private final AtomicIntegerArray eventRows = new AtomicIntegerArray(Event.values().length);
+    private final AtomicIntegerArray statusRows = new AtomicIntegerArray(Status.values().length);
+    private final ConcurrentSkipListMap<Long, Integer> dayRows = new ConcurrentSkipListMap<>();
+
+    void add(Segment segment) {
+        int size = segment.size();
+        for (int row = 0; row < size; row++) {
+            userRows.merge(segment.user(row), 1, Integer::sum);
+            ipRows.merge(segment.ip(row), 1, Integer::sum);
+            taskRows.merge(segment.task(row), 1, Integer::sum);
+            if (segment.eventCode(row) != Segment.NO_CODE) {
+                eventRows.incrementAndGet(segment.eventCode(row));
+            }
+            if (segment.statusCode(row) != Segment.NO_CODE) {
+                statusRows.incrementAndGet(segment.statusCode(row));
+            }
+            if (segment.timestamp(row) != Segment.NO_DATE) {
+                dayRows.merge(Math.floorDiv(segment.timestamp(row), BUCKET_MILLIS), 1, Integer::sum);
+            }
+        }
+        rows.addAndGet(size);
+    }
+
+    long rows() {
+        return rows.get();
+    }
+
+    long rowsForUser(String user) {
+        return userRows.getOrDefault(user, 0);
+    }
+
+    long rowsForIp(String ip) {
+        return ipRows.getOrDefault(ip, 0);
+    }
+
+    /**
+     * Estimates the rows strictly between {@code after} and {@code before}, assuming
+     * rows are spread evenly within a day.
+     */
+    double rowsInWindow(long after, long before) {
+        if (after >= before) {
+            return 0;
+        }
+        long firstDay = Math.floorDiv(after, BUCKET_MILLIS);
+        long lastDay = Math.floorDiv(before, BUCKET_MILLIS);
+        double result = 0;
+        for (Map.Entry<Long, Integer> entry : dayRows.subMap(firstDay, true, lastDay, true).entrySet()) {
+            long dayStart = entry.getKey() * BUCKET_MILLIS;
+            long overlap = Math.min(before, dayStart + BUCKET_MILLIS) - Math.max(after, dayStart);
+            result += entry.getValue() * Math.max(0, Math.min(1, (double) overlap / BUCKET_MILLIS));
+        }
+        return result;
+    }
+
+    /**
+     * Estimates the rows matching all conditions, treating them as independent.
+     */
+    double estimateRows(ScanPredicate predicate, String user, String ip) {
+        double total = rows.get();
+        if (total == 0) {
+            return 0;
+        }
+        double result = rowsInWindow(predicate.after(), predicate.before());
+        if (predicate.event() != ScanPredicate.ANY_CODE) {
+            result *= eventRows.get(predicate.event()) / total;
+        }
+        if (predicate.status() != ScanPredicate.ANY_CODE) {
+            result *= statusRows.get(predicate.status()) / total;
+        }
+        if (predicate.task() != ScanPredicate.ANY_TASK) {
+            result *= taskRows.getOrDefault(predicate.task(), 0) / total;
+        }
+        if (user != null) {
+            result *= rowsForUser(user) / total;
+        }
+        if (ip != null) {
+            result *= rowsForIp(ip) / total;
+        }
+        return result;
+    }
+}
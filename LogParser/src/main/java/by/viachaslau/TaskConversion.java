@@ -0,0 +1,38 @@
+package by.viachaslau;
+
+import java.util.List;
+
+/**
+ * How users moved from SOLVE_TASK to DONE_TASK for one task. A user is counted as
+ * attempted from their first SOLVE_TASK and as completed by the first DONE_TASK that
+ * follows it. For every completed user the time from the first attempt to completion
+ * and the number of FAILED or ERROR attempts before it are kept, both sorted ascending
+ * in unmodifiable lists.
+ */
+public record TaskConversion(int task, int attemptedUsers, int completedUsers,
+                             List<Long> latencies, List<Integer> failedAttemptsBeforeDone) {
+    public TaskConversion {
+        latencies = List.copyOf(latencies);
+        failedAttemptsBeforeDone = List.copyOf(failedAttemptsBeforeDone);
+    }
+
+    public double conversionRate() {
+        return attemptedUsers == 0 ? 0 : (double) completedUsers / attemptedUsers;
+    }
+
+    public long latencyPercentile(double fraction) {
+        if (latencies.isEmpty()) {
+            return -1;
+        }
+        int index = (int) Math.ceil(fraction * latencies.size()) - 1;
+        return latencies.get(Math.min(Math.max(index, 0), latencies.size() - 1));
+    }
+
+    public double averageFailedAttemptsBeforeDone() {
+        long total = 0;
+        for (int failedAttempts : failedAttemptsBeforeDone) {
+            total += failedAttempts;
+        }
+        return failedAttemptsBeforeDone.isEmpty() ? 0 : (double) total / failedAttemptsBeforeDone.size();
+    }
+}
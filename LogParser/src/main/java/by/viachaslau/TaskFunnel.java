@@ -0,0 +1,74 @@
+package by.viachaslau;
+
+import java.util.*;
+
+/**
+ * Computes {@link TaskConversion}s in one pass over SOLVE_TASK and DONE_TASK rows
+ * ordered by user and time, keeping a small state machine per task for the current user.
+ */
+class TaskFunnel {
+    private final Map<Integer, Accumulator> accumulators = new HashMap<>();
+    private final Map<Integer, UserState> userStates = new HashMap<>();
+
+    static Map<Integer, TaskConversion> conversions(List<Step> steps) {
+        steps.sort(Comparator.comparing(Step::user)
+                .thenComparingLong(Step::timestamp)
+                .thenComparing(Step::event));
+        TaskFunnel funnel = new TaskFunnel();
+        String user = null;
+        for (Step step : steps) {
+            if (!step.user().equals(user)) {
+                funnel.userStates.clear();
+                user = step.user();
+            }
+            funnel.accept(step);
+        }
+        Map<Integer, TaskConversion> result = new HashMap<>();
+        funnel.accumulators.forEach((task, accumulator) -> result.put(task, accumulator.toConversion(task)));
+        return result;
+    }
+
+    private void accept(Step step) {
+        UserState state = userStates.get(step.task());
+        if (step.event() == Event.SOLVE_TASK) {
+            if (state == null) {
+                state = new UserState(step.timestamp());
+                userStates.put(step.task(), state);
+                accumulators.computeIfAbsent(step.task(), task -> new Accumulator()).attemptedUsers++;
+            }
+            if (!state.completed && step.status() != Status.OK) {
+                state.failedAttempts++;
+            }
+        } else if (state != null && !state.completed) {
+            state.completed = true;
+            Accumulator accumulator = accumulators.get(step.task());
+            accumulator.latencies.add(step.timestamp() - state.firstAttempt);
+            accumulator.failedAttempts.add(state.failedAttempts);
+        }
+    }
+
+    record Step(String user, long timestamp, Event event, int task, Status status) {
+    }
+
+    private static class UserState {
+        private final long firstAttempt;
+        private int failedAttempts;
+        private boolean completed;
+
+        UserState(long firstAttempt) {
+            this.firstAttempt = firstAttempt;
+        }
+    }
+
+    private static class Accumulator {
+        private final List<Long> latencies = new ArrayList<>();
+        private final List<Integer> failedAttempts = new ArrayList<>();
+        private int attemptedUsers;
+
+        TaskConversion toConversion(int task) {
+            latencies.sort(null);
+            failedAttempts.sort(null);
+            return new TaskConversion(task, attemptedUsers, latencies.size(), latencies, failedAttempts);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package by.viachaslau.query;
+
+import java.util.Date;
+import java.util.Set;
+
+public interface RangeQuery {
+    Date getFirstDate();
+
+    Date getLastDate();
+
+    Set<String> getUsers(Date after, Date before);
+}
@@ -0,0 +1,10 @@
+package by.viachaslau.query;
+
+import by.viachaslau.TaskConversion;
+
+import java.util.Date;
+import java.util.Map;
+
+public interface SequenceQuery {
+    Map<Integer, TaskConversion> getTaskConversions(Date after, Date before);
+}
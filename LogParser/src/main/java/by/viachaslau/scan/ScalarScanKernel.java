@@ -0,0 +1,27 @@
+package by.viachaslau.scan;
+
+public class ScalarScanKernel implements ScanKernel {
+    @Override
+    public int count(long[] timestamps, byte[] events, byte[] statuses, int[] tasks,
+                     int from, int to, ScanPredicate predicate) {
+        int quantity = 0;
+        for (int row = from; row < to; row++) {
+            if (predicate.test(timestamps[row], events[row], statuses[row], tasks[row])) {
+                quantity++;
+            }
+        }
+        return quantity;
+    }
+
+    @Override
+    public int select(long[] timestamps, byte[] events, byte[] statuses, int[] tasks,
+                      int from, int to, ScanPredicate predicate, int[] rows) {
+        int quantity = 0;
+        for (int row = from; row < to; row++) {
+            if (predicate.test(timestamps[row], events[row], statuses[row], tasks[row])) {
+                rows[quantity++] = row;
+            }
+        }
+        return quantity;
+    }
+}
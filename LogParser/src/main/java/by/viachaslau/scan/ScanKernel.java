@@ -0,0 +1,9 @@
+package by.viachaslau.scan;
+
+public interface ScanKernel {
+    int count(long[] timestamps, byte[] events, byte[] statuses, int[] tasks,
+              int from, int to, ScanPredicate predicate);
+
+    int select(long[] timestamps, byte[] events, byte[] statuses, int[] tasks,
+               int from, int to, ScanPredicate predicate, int[] rows);
+}
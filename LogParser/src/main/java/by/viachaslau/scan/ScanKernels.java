@@ -0,0 +1,25 @@
+package by.viachaslau.scan;
+
+public final class ScanKernels {
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private ScanKernels() {
+    }
+
+    /**
+     * Returns the vectorized kernel when the JVM was started with
+     * {@code --add-modules jdk.incubator.vector}, and the scalar one otherwise
+     * or when {@code -Dlogparser.scan.scalar=true} is set.
+     */
+    public static ScanKernel preferred() {
+        if (Boolean.getBoolean("logparser.scan.scalar")
+                || ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return new ScalarScanKernel();
+        }
+        try {
+            return new VectorScanKernel();
+        } catch (LinkageError e) {
+            return new ScalarScanKernel();
+        }
+    }
+}
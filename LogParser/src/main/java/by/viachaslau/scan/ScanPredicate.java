@@ -0,0 +1,13 @@
+package by.viachaslau.scan;
+
+public record ScanPredicate(long after, long before, byte event, byte status, int task) {
+    public static final byte ANY_CODE = -1;
+    public static final int ANY_TASK = Integer.MIN_VALUE;
+
+    public boolean test(long timestamp, byte event, byte status, int task) {
+        return timestamp > after && timestamp < before
+                && (this.event == ANY_CODE || this.event == event)
+                && (this.status == ANY_CODE || this.status == status)
+                && (this.task == ANY_TASK || this.task == task);
+    }
+}
@@ -0,0 +1,87 @@
+package by.viachaslau.scan;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Evaluates a {@link ScanPredicate} one block of {@code BYTES.length()} rows at a time.
+ * Event and status codes are compared a whole block per instruction, timestamps and
+ * tasks in as many narrower steps as the block needs, and every comparison is folded
+ * into a {@code long} bit mask with one bit per row. A block therefore holds at most
+ * 64 rows; wider machines use the 512-bit byte species.
+ */
+class VectorScanKernel implements ScanKernel {
+    private static final VectorSpecies<Byte> BYTES = ByteVector.SPECIES_PREFERRED.length() <= Long.SIZE
+            ? ByteVector.SPECIES_PREFERRED : ByteVector.SPECIES_512;
+    private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+    private static final int BLOCK = BYTES.length();
+    private static final long ALL_ROWS = BLOCK == Long.SIZE ? -1L : (1L << BLOCK) - 1;
+
+    private final ScalarScanKernel tail = new ScalarScanKernel();
+
+    @Override
+    public int count(long[] timestamps, byte[] events, byte[] statuses, int[] tasks,
+                     int from, int to, ScanPredicate predicate) {
+        int quantity = 0;
+        int row = from;
+        for (; row <= to - BLOCK; row += BLOCK) {
+            quantity += Long.bitCount(match(timestamps, events, statuses, tasks, row, predicate));
+        }
+        return quantity + tail.count(timestamps, events, statuses, tasks, row, to, predicate);
+    }
+
+    @Override
+    public int select(long[] timestamps, byte[] events, byte[] statuses, int[] tasks,
+                      int from, int to, ScanPredicate predicate, int[] rows) {
+        int quantity = 0;
+        int row = from;
+        for (; row <= to - BLOCK; row += BLOCK) {
+            long mask = match(timestamps, events, statuses, tasks, row, predicate);
+            while (mask != 0) {
+                rows[quantity++] = row + Long.numberOfTrailingZeros(mask);
+                mask &= mask - 1;
+            }
+        }
+        int[] tailRows = new int[to - row];
+        int tailQuantity = tail.select(timestamps, events, statuses, tasks, row, to, predicate, tailRows);
+        System.arraycopy(tailRows, 0, rows, quantity, tailQuantity);
+        return quantity + tailQuantity;
+    }
+
+    private long match(long[] timestamps, byte[] events, byte[] statuses, int[] tasks,
+                       int row, ScanPredicate predicate) {
+        long mask = ALL_ROWS;
+        if (predicate.event() != ScanPredicate.ANY_CODE) {
+            mask &= ByteVector.fromArray(BYTES, events, row).eq(predicate.event()).toLong();
+        }
+        if (predicate.status() != ScanPredicate.ANY_CODE) {
+            mask &= ByteVector.fromArray(BYTES, statuses, row).eq(predicate.status()).toLong();
+        }
+        if (mask == 0) {
+            return 0;
+        }
+        if (predicate.task() != ScanPredicate.ANY_TASK) {
+            long taskMask = 0;
+            for (int lane = 0; lane < BLOCK; lane += INTS.length()) {
+                taskMask |= IntVector.fromArray(INTS, tasks, row + lane)
+                        .eq(predicate.task()).toLong() << lane;
+            }
+            mask &= taskMask;
+            if (mask == 0) {
+                return 0;
+            }
+        }
+        long timeMask = 0;
+        for (int lane = 0; lane < BLOCK; lane += LONGS.length()) {
+            LongVector vector = LongVector.fromArray(LONGS, timestamps, row + lane);
+            timeMask |= vector.compare(VectorOperators.GT, predicate.after())
+                    .and(vector.compare(VectorOperators.LT, predicate.before()))
+                    .toLong() << lane;
+        }
+        return mask & timeMask;
+    }
+}
@@ -0,0 +1,83 @@
+package by.viachaslau.server;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Replays QL queries against a running {@link QueryServer} from a fixed number of
+ * concurrent clients and reports throughput and latency percentiles.
+ * <pre>
+ * LoadTest http://localhost:8080 64 10000 'get ip' 'get user for event = "LOGIN"'
+ * </pre>
+ */
+public class LoadTest {
+    public static void main(String[] args) throws Exception {
+        if (args.length < 4) {
+            System.err.println("Usage: LoadTest <baseUrl> <clients> <requests> <query>...");
+            return;
+        }
+        String baseUrl = args[0];
+        int clients = Integer.parseInt(args[1]);
+        int requests = Integer.parseInt(args[2]);
+        List<URI> uris = new ArrayList<>();
+        for (int i = 3; i < args.length; i++) {
+            uris.add(URI.create(baseUrl + "/ql?query=" + URLEncoder.encode(args[i], StandardCharsets.UTF_8)));
+        }
+
+        HttpClient client = HttpClient.newHttpClient();
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < clients; i++) {
+                futures.add(executor.submit(() -> {
+                    int request;
+                    while ((request = next.getAndIncrement()) < requests) {
+                        HttpRequest httpRequest = HttpRequest.newBuilder(uris.get(request % uris.size())).build();
+                        long sent = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response =
+                                    client.send(httpRequest, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        latencies[request] = System.nanoTime() - sent;
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        System.out.printf("requests: %d, errors: %d, clients: %d%n", requests, errors.get(), clients);
+        System.out.printf("throughput: %.1f req/s%n", requests / (elapsed / 1e9));
+        System.out.printf("latency ms: p50 %.2f, p90 %.2f, p99 %.2f, p99.9 %.2f, max %.2f%n",
+                percentile(latencies, 0.5), percentile(latencies, 0.9), percentile(latencies, 0.99),
+                percentile(latencies, 0.999), latencies[latencies.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sortedLatencies, double fraction) {
+        int index = (int) Math.ceil(fraction * sortedLatencies.length) - 1;
+        return sortedLatencies[Math.max(index, 0)] / 1e6;
+    }
+}
@@ -0,0 +1,87 @@
+package by.viachaslau.server;
+
+import by.viachaslau.Event;
+import by.viachaslau.Status;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+
+final class QueryParameters {
+    private final Map<String, String> values;
+
+    private QueryParameters(Map<String, String> values) {
+        this.values = values;
+    }
+
+    static QueryParameters parse(String rawQuery) {
+        Map<String, String> values = new TreeMap<>();
+        if (rawQuery != null && !rawQuery.isEmpty()) {
+            for (String pair : rawQuery.split("&")) {
+                int separator = pair.indexOf('=');
+                String name = separator < 0 ? pair : pair.substring(0, separator);
+                String value = separator < 0 ? "" : pair.substring(separator + 1);
+                values.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                        URLDecoder.decode(value, StandardCharsets.UTF_8));
+            }
+        }
+        return new QueryParameters(values);
+    }
+
+    boolean has(String name) {
+        return values.containsKey(name);
+    }
+
+    String string(String name) {
+        String value = values.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        return value;
+    }
+
+    Date date(String name) {
+        String value = values.get(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return new SimpleDateFormat("d.M.yyyy H:m:s").parse(value);
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Invalid date in parameter " + name + ": " + value);
+        }
+    }
+
+    int task() {
+        try {
+            return Integer.parseInt(string("task"));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid task: " + values.get("task"));
+        }
+    }
+
+    Event event() {
+        return Event.valueOf(string("event"));
+    }
+
+    Status status() {
+        return Status.valueOf(string("status"));
+    }
+
+    /**
+     * Returns a canonical form of the parameters, so that requests differing only
+     * in parameter order are coalesced into one scan.
+     */
+    String canonical() {
+        StringJoiner canonical = new StringJoiner("&");
+        values.forEach((name, value) -> canonical.add(URLEncoder.encode(name, StandardCharsets.UTF_8)
+                + "=" + URLEncoder.encode(value, StandardCharsets.UTF_8)));
+        return canonical.toString();
+    }
+}
@@ -0,0 +1,231 @@
+package by.viachaslau.server;
+
+import by.viachaslau.LoadPolicy;
+import by.viachaslau.LogParser;
+import by.viachaslau.query.*;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Serves the query interfaces as JSON over HTTP:
+ * <pre>
+ * GET /ql?query=get ip for user = "Amigo"
+ * GET /query/getIPsForUser?user=Amigo&amp;after=1.1.2013 0:0:0&amp;before=1.1.2014 0:0:0
+ * </pre>
+ * Every request runs on its own virtual thread. Identical requests that arrive while
+ * one of them is being answered share its scan, and at most {@code maxConcurrentScans}
+ * scans run at the same time; requests that cannot get a slot within
+ * {@code admissionTimeoutMillis} are answered with 503.
+ */
+public class QueryServer {
+    private final HttpServer httpServer;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Function<QueryParameters, Object>> typedQueries;
+    private final QLQuery qlQuery;
+    private final Semaphore scans;
+    private final long admissionTimeoutMillis;
+
+    public <T extends IPQuery & UserQuery & DateQuery & EventQuery & QLQuery> QueryServer(
+            T queries, InetSocketAddress address, int maxConcurrentScans, long admissionTimeoutMillis)
+            throws IOException {
+        this.qlQuery = queries;
+        this.typedQueries = typedQueries(queries, queries, queries, queries);
+        this.scans = new Semaphore(maxConcurrentScans);
+        this.admissionTimeoutMillis = admissionTimeoutMillis;
+        this.httpServer = HttpServer.create(address, 0);
+        httpServer.setExecutor(executor);
+        httpServer.createContext("/ql", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            if (!path.equals("/ql")) {
+                respond(exchange, 404, Json.write(Map.of("error", "Unknown path: " + path)));
+                return;
+            }
+            handle(exchange, "ql", parameters -> qlQuery.execute(parameters.string("query")));
+        });
+        httpServer.createContext("/query/", exchange -> {
+            String method = exchange.getRequestURI().getPath().substring("/query/".length());
+            Function<QueryParameters, Object> query = typedQueries.get(method);
+            if (query == null) {
+                respond(exchange, 404, Json.write(Map.of("error", "Unknown query: " + method)));
+                return;
+            }
+            handle(exchange, method, query);
+        });
+    }
+
+    public void start() {
+        httpServer.start();
+    }
+
+    public void stop() {
+        httpServer.stop(0);
+        executor.shutdown();
+    }
+
+    public InetSocketAddress getAddress() {
+        return httpServer.getAddress();
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: QueryServer <logDir> <port> [maxConcurrentScans]");
+            return;
+        }
+        int maxConcurrentScans = args.length > 2
+                ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        LogParser logParser = LogParser.loadInBackground(Paths.get(args[0]), LoadPolicy.WAIT);
+        QueryServer server = new QueryServer(logParser,
+                new InetSocketAddress(Integer.parseInt(args[1])), maxConcurrentScans, 30_000);
+        server.start();
+        System.out.println("Listening on " + server.getAddress());
+    }
+
+    private void handle(HttpExchange exchange, String name, Function<QueryParameters, Object> query)
+            throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                respond(exchange, 405, Json.write(Map.of("error", "Only GET is supported")));
+                return;
+            }
+            QueryParameters parameters = QueryParameters.parse(exchange.getRequestURI().getRawQuery());
+            String key = name + "?" + parameters.canonical();
+            CompletableFuture<String> future = new CompletableFuture<>();
+            CompletableFuture<String> running = inFlight.putIfAbsent(key, future);
+            if (running == null) {
+                try {
+                    future.complete(scan(query, parameters));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    inFlight.remove(key, future);
+                }
+                running = future;
+            }
+            respond(exchange, 200, running.get());
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, Json.write(Map.of("error", String.valueOf(e.getMessage()))));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IllegalArgumentException) {
+                respond(exchange, 400, Json.write(Map.of("error", String.valueOf(cause.getMessage()))));
+            } else if (cause instanceof AdmissionException) {
+                respond(exchange, 503, Json.write(Map.of("error", cause.getMessage())));
+            } else {
+                respond(exchange, 500, Json.write(Map.of("error", String.valueOf(cause))));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            respond(exchange, 503, Json.write(Map.of("error", "Interrupted")));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private String scan(Function<QueryParameters, Object> query, QueryParameters parameters)
+            throws InterruptedException {
+        if (!scans.tryAcquire(admissionTimeoutMillis, TimeUnit.MILLISECONDS)) {
+            throw new AdmissionException();
+        }
+        try {
+            return Json.write(query.apply(parameters));
+        } finally {
+            scans.release();
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int code, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+
+    private static Map<String, Function<QueryParameters, Object>> typedQueries(
+            IPQuery ipQuery, UserQuery userQuery, DateQuery dateQuery, EventQuery eventQuery) {
+        Map<String, Function<QueryParameters, Object>> queries = new HashMap<>();
+
+        queries.put("getNumberOfUniqueIPs", p -> ipQuery.getNumberOfUniqueIPs(p.date("after"), p.date("before")));
+        queries.put("getUniqueIPs", p -> ipQuery.getUniqueIPs(p.date("after"), p.date("before")));
+        queries.put("getIPsForUser", p -> ipQuery.getIPsForUser(p.string("user"), p.date("after"), p.date("before")));
+        queries.put("getIPsForEvent", p -> ipQuery.getIPsForEvent(p.event(), p.date("after"), p.date("before")));
+        queries.put("getIPsForStatus", p -> ipQuery.getIPsForStatus(p.status(), p.date("after"), p.date("before")));
+
+        queries.put("getAllUsers", p -> userQuery.getAllUsers());
+        queries.put("getNumberOfUsers", p -> userQuery.getNumberOfUsers(p.date("after"), p.date("before")));
+        queries.put("getNumberOfUserEvents",
+                p -> userQuery.getNumberOfUserEvents(p.string("user"), p.date("after"), p.date("before")));
+        queries.put("getUsersForIP", p -> userQuery.getUsersForIP(p.string("ip"), p.date("after"), p.date("before")));
+        queries.put("getLoggedUsers", p -> userQuery.getLoggedUsers(p.date("after"), p.date("before")));
+        queries.put("getDownloadedPluginUsers",
+                p -> userQuery.getDownloadedPluginUsers(p.date("after"), p.date("before")));
+        queries.put("getWroteMessageUsers", p -> userQuery.getWroteMessageUsers(p.date("after"), p.date("before")));
+        queries.put("getSolvedTaskUsers", p -> p.has("task")
+                ? userQuery.getSolvedTaskUsers(p.date("after"), p.date("before"), p.task())
+                : userQuery.getSolvedTaskUsers(p.date("after"), p.date("before")));
+        queries.put("getDoneTaskUsers", p -> p.has("task")
+                ? userQuery.getDoneTaskUsers(p.date("after"), p.date("before"), p.task())
+                : userQuery.getDoneTaskUsers(p.date("after"), p.date("before")));
+
+        queries.put("getDatesForUserAndEvent", p -> dateQuery.getDatesForUserAndEvent(p.string("user"), p.event(),
+                p.date("after"), p.date("before")));
+        queries.put("getDatesWhenSomethingFailed",
+                p -> dateQuery.getDatesWhenSomethingFailed(p.date("after"), p.date("before")));
+        queries.put("getDatesWhenErrorHappened",
+                p -> dateQuery.getDatesWhenErrorHappened(p.date("after"), p.date("before")));
+        queries.put("getDateWhenUserLoggedFirstTime",
+                p -> dateQuery.getDateWhenUserLoggedFirstTime(p.string("user"), p.date("after"), p.date("before")));
+        queries.put("getDateWhenUserSolvedTask", p -> dateQuery.getDateWhenUserSolvedTask(p.string("user"), p.task(),
+                p.date("after"), p.date("before")));
+        queries.put("getDateWhenUserDoneTask", p -> dateQuery.getDateWhenUserDoneTask(p.string("user"), p.task(),
+                p.date("after"), p.date("before")));
+        queries.put("getDatesWhenUserWroteMessage",
+                p -> dateQuery.getDatesWhenUserWroteMessage(p.string("user"), p.date("after"), p.date("before")));
+        queries.put("getDatesWhenUserDownloadedPlugin",
+                p -> dateQuery.getDatesWhenUserDownloadedPlugin(p.string("user"), p.date("after"), p.date("before")));
+
+        queries.put("getNumberOfAllEvents", p -> eventQuery.getNumberOfAllEvents(p.date("after"), p.date("before")));
+        queries.put("getAllEvents", p -> eventQuery.getAllEvents(p.date("after"), p.date("before")));
+        queries.put("getEventsForIP", p -> eventQuery.getEventsForIP(p.string("ip"), p.date("after"), p.date("before")));
+        queries.put("getEventsForUser",
+                p -> eventQuery.getEventsForUser(p.string("user"), p.date("after"), p.date("before")));
+        queries.put("getFailedEvents", p -> eventQuery.getFailedEvents(p.date("after"), p.date("before")));
+        queries.put("getErrorEvents", p -> eventQuery.getErrorEvents(p.date("after"), p.date("before")));
+        queries.put("getNumberOfAttemptToSolveTask",
+                p -> eventQuery.getNumberOfAttemptToSolveTask(p.task(), p.date("after"), p.date("before")));
+        queries.put("getNumberOfSuccessfulAttemptToSolveTask",
+                p -> eventQuery.getNumberOfSuccessfulAttemptToSolveTask(p.task(), p.date("after"), p.date("before")));
+        queries.put("getAllSolvedTasksAndTheirNumber",
+                p -> eventQuery.getAllSolvedTasksAndTheirNumber(p.date("after"), p.date("before")));
+        queries.put("getAllDoneTasksAndTheirNumber",
+                p -> eventQuery.getAllDoneTasksAndTheirNumber(p.date("after"), p.date("before")));
+
+        return queries;
+    }
+
+    private static class AdmissionException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        AdmissionException() {
+            super("Too many concurrent scans");
+        }
+    }
+}
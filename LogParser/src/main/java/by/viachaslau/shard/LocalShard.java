@@ -0,0 +1,211 @@
+package by.viachaslau.shard;
+
+import by.viachaslau.Event;
+import by.viachaslau.LogParser;
+import by.viachaslau.Status;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Serves a {@link LogParser} of this JVM as a {@link Shard}. The parser implements every
+ * query interface a shard extends, so each call is forwarded to it unchanged.
+ */
+class LocalShard implements Shard {
+    private final LogParser logParser;
+
+    LocalShard(LogParser logParser) {
+        this.logParser = logParser;
+    }
+
+    @Override
+    public int getNumberOfUniqueIPs(Date after, Date before) {
+        return logParser.getNumberOfUniqueIPs(after, before);
+    }
+
+    @Override
+    public Set<String> getUniqueIPs(Date after, Date before) {
+        return logParser.getUniqueIPs(after, before);
+    }
+
+    @Override
+    public Set<String> getIPsForUser(String user, Date after, Date before) {
+        return logParser.getIPsForUser(user, after, before);
+    }
+
+    @Override
+    public Set<String> getIPsForEvent(Event event, Date after, Date before) {
+        return logParser.getIPsForEvent(event, after, before);
+    }
+
+    @Override
+    public Set<String> getIPsForStatus(Status status, Date after, Date before) {
+        return logParser.getIPsForStatus(status, after, before);
+    }
+
+    @Override
+    public Set<String> getAllUsers() {
+        return logParser.getAllUsers();
+    }
+
+    @Override
+    public int getNumberOfUsers(Date after, Date before) {
+        return logParser.getNumberOfUsers(after, before);
+    }
+
+    @Override
+    public int getNumberOfUserEvents(String user, Date after, Date before) {
+        return logParser.getNumberOfUserEvents(user, after, before);
+    }
+
+    @Override
+    public Set<String> getUsersForIP(String ip, Date after, Date before) {
+        return logParser.getUsersForIP(ip, after, before);
+    }
+
+    @Override
+    public Set<String> getLoggedUsers(Date after, Date before) {
+        return logParser.getLoggedUsers(after, before);
+    }
+
+    @Override
+    public Set<String> getDownloadedPluginUsers(Date after, Date before) {
+        return logParser.getDownloadedPluginUsers(after, before);
+    }
+
+    @Override
+    public Set<String> getWroteMessageUsers(Date after, Date before) {
+        return logParser.getWroteMessageUsers(after, before);
+    }
+
+    @Override
+    public Set<String> getSolvedTaskUsers(Date after, Date before) {
+        return logParser.getSolvedTaskUsers(after, before);
+    }
+
+    @Override
+    public Set<String> getSolvedTaskUsers(Date after, Date before, int task) {
+        return logParser.getSolvedTaskUsers(after, before, task);
+    }
+
+    @Override
+    public Set<String> getDoneTaskUsers(Date after, Date before) {
+        return logParser.getDoneTaskUsers(after, before);
+    }
+
+    @Override
+    public Set<String> getDoneTaskUsers(Date after, Date before, int task) {
+        return logParser.getDoneTaskUsers(after, before, task);
+    }
+
+    @Override
+    public Set<Date> getDatesForUserAndEvent(String user, Event event, Date after, Date before) {
+        return logParser.getDatesForUserAndEvent(user, event, after, before);
+    }
+
+    @Override
+    public Set<Date> getDatesWhenSomethingFailed(Date after, Date before) {
+        return logParser.getDatesWhenSomethingFailed(after, before);
+    }
+
+    @Override
+    public Set<Date> getDatesWhenErrorHappened(Date after, Date before) {
+        return logParser.getDatesWhenErrorHappened(after, before);
+    }
+
+    @Override
+    public Date getDateWhenUserLoggedFirstTime(String user, Date after, Date before) {
+        return logParser.getDateWhenUserLoggedFirstTime(user, after, before);
+    }
+
+    @Override
+    public Date getDateWhenUserSolvedTask(String user, int task, Date after, Date before) {
+        return logParser.getDateWhenUserSolvedTask(user, task, after, before);
+    }
+
+    @Override
+    public Date getDateWhenUserDoneTask(String user, int task, Date after, Date before) {
+        return logParser.getDateWhenUserDoneTask(user, task, after, before);
+    }
+
+    @Override
+    public Set<Date> getDatesWhenUserWroteMessage(String user, Date after, Date before) {
+        return logParser.getDatesWhenUserWroteMessage(user, after, before);
+    }
+
+    @Override
+    public Set<Date> getDatesWhenUserDownloadedPlugin(String user, Date after, Date before) {
+        return logParser.getDatesWhenUserDownloadedPlugin(user, after, before);
+    }
+
+    @Override
+    public int getNumberOfAllEvents(Date after, Date before) {
+        return logParser.getNumberOfAllEvents(after, before);
+    }
+
+    @Override
+    public Set<Event> getAllEvents(Date after, Date before) {
+        return logParser.getAllEvents(after, before);
+    }
+
+    @Override
+    public Set<Event> getEventsForIP(String ip, Date after, Date before) {
+        return logParser.getEventsForIP(ip, after, before);
+    }
+
+    @Override
+    public Set<Event> getEventsForUser(String user, Date after, Date before) {
+        return logParser.getEventsForUser(user, after, before);
+    }
+
+    @Override
+    public Set<Event> getFailedEvents(Date after, Date before) {
+        return logParser.getFailedEvents(after, before);
+    }
+
+    @Override
+    public Set<Event> getErrorEvents(Date after, Date before) {
+        return logParser.getErrorEvents(after, before);
+    }
+
+    @Override
+    public int getNumberOfAttemptToSolveTask(int task, Date after, Date before) {
+        return logParser.getNumberOfAttemptToSolveTask(task, after, before);
+    }
+
+    @Override
+    public int getNumberOfSuccessfulAttemptToSolveTask(int task, Date after, Date before) {
+        return logParser.getNumberOfSuccessfulAttemptToSolveTask(task, after, before);
+    }
+
+    @Override
+    public Map<Integer, Integer> getAllSolvedTasksAndTheirNumber(Date after, Date before) {
+        return logParser.getAllSolvedTasksAndTheirNumber(after, before);
+    }
+
+    @Override
+    public Map<Integer, Integer> getAllDoneTasksAndTheirNumber(Date after, Date before) {
+        return logParser.getAllDoneTasksAndTheirNumber(after, before);
+    }
+
+    @Override
+    public Set<Object> execute(String query) {
+        return logParser.execute(query);
+    }
+
+    @Override
+    public Date getFirstDate() {
+        return logParser.getFirstDate();
+    }
+
+    @Override
+    public Date getLastDate() {
+        return logParser.getLastDate();
+    }
+
+    @Override
+    public Set<String> getUsers(Date after, Date before) {
+        return logParser.getUsers(after, before);
+    }
+}
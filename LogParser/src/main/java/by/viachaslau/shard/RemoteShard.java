@@ -0,0 +1,114 @@
+package by.viachaslau.shard;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Client side of a {@link ShardWorker}. Every {@link Shard} method call is sent as a
+ * {@link ShardRequest} over a pooled socket, so concurrent queries to the same worker
+ * do not wait for each other. An {@link IllegalArgumentException} thrown by the worker,
+ * such as a malformed QL query, is rethrown as one; other failures become
+ * {@link IllegalStateException}s.
+ */
+public class RemoteShard implements InvocationHandler, AutoCloseable {
+    private final InetSocketAddress address;
+    private final ConcurrentLinkedQueue<Connection> connections = new ConcurrentLinkedQueue<>();
+
+    private RemoteShard(InetSocketAddress address) {
+        this.address = address;
+    }
+
+    public static Shard connect(InetSocketAddress address) {
+        return (Shard) Proxy.newProxyInstance(Shard.class.getClassLoader(),
+                new Class<?>[]{Shard.class, AutoCloseable.class}, new RemoteShard(address));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "close": {
+                close();
+                return null;
+            }
+            case "toString": {
+                return "RemoteShard[" + address + "]";
+            }
+            case "hashCode": {
+                return System.identityHashCode(proxy);
+            }
+            case "equals": {
+                return proxy == args[0];
+            }
+        }
+        Connection connection = connections.poll();
+        if (connection == null) {
+            connection = new Connection(address);
+        }
+        ShardResponse response;
+        try {
+            response = connection.call(new ShardRequest(method.getName(), method.getParameterTypes(), args));
+        } catch (IOException e) {
+            connection.close();
+            throw new UncheckedIOException("Shard " + address + " failed", e);
+        }
+        connections.add(connection);
+        if (response.errorType() != null) {
+            if (response.errorType().equals(IllegalArgumentException.class.getName())) {
+                throw new IllegalArgumentException(response.error());
+            }
+            throw new IllegalStateException("Shard " + address + " failed: "
+                    + response.errorType() + ": " + response.error());
+        }
+        return response.value();
+    }
+
+    @Override
+    public void close() {
+        Connection connection;
+        while ((connection = connections.poll()) != null) {
+            connection.close();
+        }
+    }
+
+    private static class Connection {
+        private final Socket socket;
+        private final ObjectOutputStream output;
+        private final ObjectInputStream input;
+
+        Connection(InetSocketAddress address) throws IOException {
+            socket = new Socket(address.getAddress(), address.getPort());
+            output = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            output.flush();
+            input = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+            input.setObjectInputFilter(ShardWorker.SERIAL_FILTER);
+        }
+
+        ShardResponse call(ShardRequest request) throws IOException {
+            output.writeObject(request);
+            output.flush();
+            output.reset();
+            try {
+                return (ShardResponse) input.readObject();
+            } catch (ClassNotFoundException e) {
+                throw new IOException(e);
+            }
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package by.viachaslau.shard;
+
+import by.viachaslau.LogParser;
+import by.viachaslau.query.*;
+
+/**
+ * A part of the log history that can answer every query on its own. Besides the
+ * query interfaces a shard reports the time range it covers, so that a
+ * {@link ShardCoordinator} can skip it, and the users active in a window, so that
+ * distinct user counts can be merged across shards.
+ */
+public interface Shard extends IPQuery, UserQuery, DateQuery, EventQuery, QLQuery, RangeQuery {
+    static Shard of(LogParser logParser) {
+        return new LocalShard(logParser);
+    }
+}
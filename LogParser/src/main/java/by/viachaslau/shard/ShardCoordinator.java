@@ -0,0 +1,464 @@
+package by.viachaslau.shard;
+
+import by.viachaslau.Event;
+import by.viachaslau.LogParser;
+import by.viachaslau.Status;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Answers queries over several time-partitioned shards. A query is sent in parallel
+ * only to the shards whose time range overlaps its {@code after}/{@code before}
+ * window, and the partial results are merged: sets are united, distinct counts are
+ * recomputed from the united sets, attempt counts and task maps are summed, and
+ * first dates take the minimum.
+ */
+public class ShardCoordinator implements Shard, AutoCloseable {
+    private final List<Shard> shards;
+    private final long[] firstTimestamps;
+    private final long[] lastTimestamps;
+    private final List<Process> workers;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public ShardCoordinator(List<? extends Shard> shards) {
+        this(shards, List.of());
+    }
+
+    private ShardCoordinator(List<? extends Shard> shards, List<Process> workers) {
+        this.shards = List.copyOf(shards);
+        this.workers = workers;
+        this.firstTimestamps = new long[this.shards.size()];
+        this.lastTimestamps = new long[this.shards.size()];
+        for (int i = 0; i < this.shards.size(); i++) {
+            Date first = this.shards.get(i).getFirstDate();
+            Date last = this.shards.get(i).getLastDate();
+            firstTimestamps[i] = first == null ? Long.MAX_VALUE : first.getTime();
+            lastTimestamps[i] = last == null ? Long.MIN_VALUE : last.getTime();
+        }
+    }
+
+    /**
+     * Loads every partition of {@code logDir} into its own {@link LogParser} in this JVM.
+     */
+    public static ShardCoordinator inProcess(Path logDir, int shards) throws IOException {
+        List<Shard> result = new ArrayList<>();
+        for (List<Path> partition : partition(logDir, shards)) {
+            result.add(Shard.of(new LogParser(partition)));
+        }
+        return new ShardCoordinator(result);
+    }
+
+    /**
+     * Starts one {@link ShardWorker} JVM per partition of {@code logDir}, listening on
+     * consecutive loopback ports from {@code basePort}. The workers get the JVM options of
+     * this JVM, such as {@code --add-modules jdk.incubator.vector} and heap sizes, except
+     * debugger agents, whose ports they would compete for. The workers are stopped by
+     * {@link #close()}.
+     */
+    public static ShardCoordinator localProcesses(Path logDir, int shards, int basePort) throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        List<Process> workers = new ArrayList<>();
+        List<Shard> result = new ArrayList<>();
+        try {
+            List<List<Path>> partitions = partition(logDir, shards);
+            for (int i = 0; i < partitions.size(); i++) {
+                List<String> command = new ArrayList<>(List.of(java));
+                command.addAll(workerJvmArguments());
+                command.addAll(List.of("-cp", System.getProperty("java.class.path"),
+                        ShardWorker.class.getName(), String.valueOf(basePort + i)));
+                for (Path file : partitions.get(i)) {
+                    command.add(file.toString());
+                }
+                workers.add(new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start());
+            }
+            for (int i = 0; i < workers.size(); i++) {
+                awaitReady(workers.get(i));
+                result.add(RemoteShard.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), basePort + i)));
+            }
+        } catch (IOException | RuntimeException e) {
+            workers.forEach(Process::destroy);
+            throw e;
+        }
+        return new ShardCoordinator(result, workers);
+    }
+
+    public static ShardCoordinator remote(List<InetSocketAddress> workers) {
+        List<Shard> result = new ArrayList<>();
+        for (InetSocketAddress address : workers) {
+            result.add(RemoteShard.connect(address));
+        }
+        return new ShardCoordinator(result);
+    }
+
+    /**
+     * Splits the log files of {@code logDir} into at most {@code shards} groups of
+     * similar size. Files are ordered by their first entry, so that every group covers
+     * a contiguous time range.
+     */
+    public static List<List<Path>> partition(Path logDir, int shards) throws IOException {
+        Map<Path, Long> firstTimestamps = new HashMap<>();
+        long totalSize = 0;
+        try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(logDir)) {
+            for (Path file : directoryStream) {
+                if (file.toString().toLowerCase().endsWith(".log")) {
+                    firstTimestamps.put(file, readFirstTimestamp(file));
+                    totalSize += Files.size(file);
+                }
+            }
+        }
+        List<Path> files = new ArrayList<>(firstTimestamps.keySet());
+        files.sort(Comparator.comparing(firstTimestamps::get));
+
+        List<List<Path>> partitions = new ArrayList<>();
+        long targetSize = Math.max(1, totalSize / Math.max(1, shards));
+        long currentSize = 0;
+        List<Path> current = new ArrayList<>();
+        for (Path file : files) {
+            current.add(file);
+            currentSize += Files.size(file);
+            if (currentSize >= targetSize && partitions.size() < shards - 1) {
+                partitions.add(current);
+                current = new ArrayList<>();
+                currentSize = 0;
+            }
+        }
+        if (!current.isEmpty()) {
+            partitions.add(current);
+        }
+        return partitions;
+    }
+
+    @Override
+    public Date getFirstDate() {
+        long first = Arrays.stream(firstTimestamps).min().orElse(Long.MAX_VALUE);
+        return first == Long.MAX_VALUE ? null : new Date(first);
+    }
+
+    @Override
+    public Date getLastDate() {
+        long last = Arrays.stream(lastTimestamps).max().orElse(Long.MIN_VALUE);
+        return last == Long.MIN_VALUE ? null : new Date(last);
+    }
+
+    @Override
+    public Set<String> getUsers(Date after, Date before) {
+        return union(fanOut(after, before, shard -> shard.getUsers(after, before)));
+    }
+
+    @Override
+    public int getNumberOfUniqueIPs(Date after, Date before) {
+        return getUniqueIPs(after, before).size();
+    }
+
+    @Override
+    public Set<String> getUniqueIPs(Date after, Date before) {
+        return union(fanOut(after, before, shard -> shard.getUniqueIPs(after, before)));
+    }
+
+    @Override
+    public Set<String> getIPsForUser(String user, Date after, Date before) {
+        return union(fanOut(after, before, shard -> shard.getIPsForUser(user, after, before)));
+    }
+
+    @Override
+    public Set<String> getIPsForEvent(Event event, Date after, Date before) {
+        return union(fanOut(after, before, shard -> shard.getIPsForEvent(event, after, before)));
+    }
+
+    @Override
+    public Set<String> getIPsForStatus(Status status, Date after, Date before) {
+        return union(fanOut(after, before, shard -> shard.getIPsForStatus(status, after, before)));
+    }
+
+    @Override
+    public Set<String> getAllUsers() {
+        return union(fanOut(shards, Shard::getAllUsers));
+    }
+
+    @Override
+    public int getNumberOfUsers(Date after, Date before) {
+        return getUsers(after, before).size();
+    }
+
+    @Override
+    public int getNumberOfUserEvents(String user, Date after, Date before) {
+        return getEventsForUser(user, after, before).size();
+    }
+
+    @Override
+    public Set<String> getUsersForIP(String ip, Date after, Date before) {
+        return union(fanOut(after, before, shard -> shard.getUsersForIP(ip, after, before)));
+    }
+
+    @Override
+    public Set<String> getLoggedUsers(Date after, Date before) {
+        return union(fanOut(after, before, shard -> shard.getLoggedUsers(after, before)));
+    }
+
+    @Override
+    public Set<String> getDownloadedPluginUsers(Date after, Date before) {
+        return union(fanOut(after, before, shard -> shard.getDownloadedPluginUsers(after, before)));
+    }
+
+    @Override
+    public Set<String> getWroteMessageUsers(Date after, Date before) {
+        return union(fanOut(after, before, shard -> shard.getWroteMessageUsers(after, before)));
+    }
+
+    @Override
+    public Set<String> getSolvedTaskUsers(Date after, Date before) {
+        return union(fanOut(after, before, shard -> shard.getSolvedTaskUsers(after, before)));
+    }
+
+    @Override
+    public Set<String> getSolvedTaskUsers(Date after, Date before, int task) {
+        return union(fanOut(after, before, shard -> shard.getSolvedTaskUsers(after, before, task)));
+    }
+
+    @Override
+    public Set<String> getDoneTaskUsers(Date after, Date before) {
+        return union(fanOut(after, before, shard -> shard.getDoneTaskUsers(after, before)));
+    }
+
+    @Override
+    public Set<String> getDoneTaskUsers(Date after, Date before, int task) {
+        return union(fanOut(after, before, shard -> shard.getDoneTaskUsers(after, before, task)));
+    }
+
+    @Override
+    public Set<Date> getDatesForUserAndEvent(String user, Event event, Date after, Date before) {
+        return union(fanOut(after, before, shard -> shard.getDatesForUserAndEvent(user, event, after, before)));
+    }
+
+    @Override
+    public Set<Date> getDatesWhenSomethingFailed(Date after, Date before) {
+        return union(fanOut(after, before, shard -> shard.getDatesWhenSomethingFailed(after, before)));
+    }
+
+    @Override
+    public Set<Date> getDatesWhenErrorHappened(Date after, Date before) {
+        return union(fanOut(after, before, shard -> shard.getDatesWhenErrorHappened(after, before)));
+    }
+
+    @Override
+    public Date getDateWhenUserLoggedFirstTime(String user, Date after, Date before) {
+        return first(fanOut(after, before, shard -> shard.getDateWhenUserLoggedFirstTime(user, after, before)));
+    }
+
+    @Override
+    public Date getDateWhenUserSolvedTask(String user, int task, Date after, Date before) {
+        return first(fanOut(after, before, shard -> shard.getDateWhenUserSolvedTask(user, task, after, before)));
+    }
+
+    @Override
+    public Date getDateWhenUserDoneTask(String user, int task, Date after, Date before) {
+        return first(fanOut(after, before, shard -> shard.getDateWhenUserDoneTask(user, task, after, before)));
+    }
+
+    @Override
+    public Set<Date> getDatesWhenUserWroteMessage(String user, Date after, Date before) {
+        return union(fanOut(after, before, shard -> shard.getDatesWhenUserWroteMessage(user, after, before)));
+    }
+
+    @Override
+    public Set<Date> getDatesWhenUserDownloadedPlugin(String user, Date after, Date before) {
+        return union(fanOut(after, before, shard -> shard.getDatesWhenUserDownloadedPlugin(user, after, before)));
+    }
+
+    @Override
+    public int getNumberOfAllEvents(Date after, Date before) {
+        return getAllEvents(after, before).size();
+    }
+
+    @Override
+    public Set<Event> getAllEvents(Date after, Date before) {
+        return union(fanOut(after, before, shard -> shard.getAllEvents(after, before)));
+    }
+
+    @Override
+    public Set<Event> getEventsForIP(String ip, Date after, Date before) {
+        return union(fanOut(after, before, shard -> shard.getEventsForIP(ip, after, before)));
+    }
+
+    @Override
+    public Set<Event> getEventsForUser(String user, Date after, Date before) {
+        return union(fanOut(after, before, shard -> shard.getEventsForUser(user, after, before)));
+    }
+
+    @Override
+    public Set<Event> getFailedEvents(Date after, Date before) {
+        return union(fanOut(after, before, shard -> shard.getFailedEvents(after, before)));
+    }
+
+    @Override
+    public Set<Event> getErrorEvents(Date after, Date before) {
+        return union(fanOut(after, before, shard -> shard.getErrorEvents(after, before)));
+    }
+
+    @Override
+    public int getNumberOfAttemptToSolveTask(int task, Date after, Date before) {
+        return sum(fanOut(after, before, shard -> shard.getNumberOfAttemptToSolveTask(task, after, before)));
+    }
+
+    @Override
+    public int getNumberOfSuccessfulAttemptToSolveTask(int task, Date after, Date before) {
+        return sum(fanOut(after, before, shard -> shard.getNumberOfSuccessfulAttemptToSolveTask(task, after, before)));
+    }
+
+    @Override
+    public Map<Integer, Integer> getAllSolvedTasksAndTheirNumber(Date after, Date before) {
+        return sumByTask(fanOut(after, before, shard -> shard.getAllSolvedTasksAndTheirNumber(after, before)));
+    }
+
+    @Override
+    public Map<Integer, Integer> getAllDoneTasksAndTheirNumber(Date after, Date before) {
+        return sumByTask(fanOut(after, before, shard -> shard.getAllDoneTasksAndTheirNumber(after, before)));
+    }
+
+    @Override
+    public Set<Object> execute(String query) {
+        return union(fanOut(shards, shard -> shard.execute(query)));
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        for (Shard shard : shards) {
+            if (shard instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception ignored) {
+                }
+            }
+        }
+        workers.forEach(Process::destroy);
+    }
+
+    private <T> List<T> fanOut(Date after, Date before, Function<Shard, T> query) {
+        long afterTime = after == null ? 0 : after.getTime();
+        long beforeTime = before == null ? Long.MAX_VALUE : before.getTime();
+        List<Shard> overlapping = new ArrayList<>();
+        for (int i = 0; i < shards.size(); i++) {
+            if (lastTimestamps[i] > afterTime && firstTimestamps[i] < beforeTime) {
+                overlapping.add(shards.get(i));
+            }
+        }
+        return fanOut(overlapping, query);
+    }
+
+    private <T> List<T> fanOut(List<Shard> targets, Function<Shard, T> query) {
+        if (targets.size() == 1) {
+            return Collections.singletonList(query.apply(targets.get(0)));
+        }
+        List<Future<T>> futures = new ArrayList<>();
+        for (Shard shard : targets) {
+            futures.add(executor.submit(() -> query.apply(shard)));
+        }
+        List<T> results = new ArrayList<>();
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for shards", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+        return results;
+    }
+
+    private static <T> Set<T> union(List<Set<T>> partials) {
+        Set<T> result = new HashSet<>();
+        for (Set<T> partial : partials) {
+            result.addAll(partial);
+        }
+        return result;
+    }
+
+    private static int sum(List<Integer> partials) {
+        int result = 0;
+        for (int partial : partials) {
+            result += partial;
+        }
+        return result;
+    }
+
+    private static Map<Integer, Integer> sumByTask(List<Map<Integer, Integer>> partials) {
+        Map<Integer, Integer> result = new HashMap<>();
+        for (Map<Integer, Integer> partial : partials) {
+            partial.forEach((task, count) -> result.merge(task, count, Integer::sum));
+        }
+        return result;
+    }
+
+    private static Date first(List<Date> partials) {
+        Date result = null;
+        for (Date partial : partials) {
+            if (partial != null && (result == null || partial.before(result))) {
+                result = partial;
+            }
+        }
+        return result;
+    }
+
+    private static List<String> workerJvmArguments() {
+        List<String> arguments = new ArrayList<>();
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (!argument.startsWith("-agentlib:jdwp") && !argument.startsWith("-Xrunjdwp")) {
+                arguments.add(argument);
+            }
+        }
+        return arguments;
+    }
+
+    private static long readFirstTimestamp(Path file) throws IOException {
+        DateFormat dateFormat = new SimpleDateFormat("d.M.yyyy H:m:s");
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] params = line.split("\t");
+                if (params.length == 5) {
+                    try {
+                        return dateFormat.parse(params[2]).getTime();
+                    } catch (ParseException ignored) {
+                    }
+                }
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    private static void awaitReady(Process worker) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(worker.getInputStream()));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.equals(ShardWorker.READY)) {
+                return;
+            }
+        }
+        throw new IOException("Shard worker exited before it was ready");
+    }
+}
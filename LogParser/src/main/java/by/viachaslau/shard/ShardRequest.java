@@ -0,0 +1,6 @@
+package by.viachaslau.shard;
+
+import java.io.Serializable;
+
+record ShardRequest(String method, Class<?>[] parameterTypes, Object[] args) implements Serializable {
+}
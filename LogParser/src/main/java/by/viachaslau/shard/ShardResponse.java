@@ -0,0 +1,17 @@
+package by.viachaslau.shard;
+
+import java.io.Serializable;
+
+/**
+ * The result of a {@link ShardRequest}: its value or, if it threw, the class name and
+ * message of the exception, so that {@link RemoteShard} can rethrow argument errors as such.
+ */
+record ShardResponse(Object value, String errorType, String error) implements Serializable {
+    static ShardResponse of(Object value) {
+        return new ShardResponse(value, null, null);
+    }
+
+    static ShardResponse failed(Throwable e) {
+        return new ShardResponse(null, e.getClass().getName(), e.getMessage());
+    }
+}
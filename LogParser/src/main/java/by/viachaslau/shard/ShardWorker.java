@@ -0,0 +1,105 @@
+package by.viachaslau.shard;
+
+import by.viachaslau.LogParser;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serves a {@link Shard} to {@link RemoteShard} clients, one virtual thread per connection.
+ * Started as its own JVM with {@code ShardWorker [<address>:]<port> <logFile>...}; it
+ * listens on the loopback address unless another one is given, and prints
+ * {@link #READY} once the files are loaded and the port accepts connections.
+ */
+public class ShardWorker {
+    static final String READY = "READY";
+    /**
+     * Classes a {@link ShardRequest} or {@link ShardResponse} may carry; everything
+     * else is rejected before it is instantiated.
+     */
+    static final ObjectInputFilter SERIAL_FILTER = ObjectInputFilter.Config.createFilter(
+            "maxdepth=8;maxarray=16777216;"
+                    + "by.viachaslau.shard.ShardRequest;by.viachaslau.shard.ShardResponse;"
+                    + "by.viachaslau.Event;by.viachaslau.Status;java.lang.Enum;"
+                    + "java.util.Date;java.lang.String;java.lang.Integer;java.lang.Number;"
+                    + "java.lang.Object;java.lang.Class;"
+                    + "java.util.HashSet;java.util.LinkedHashSet;java.util.TreeSet;"
+                    + "java.util.HashMap;java.util.LinkedHashMap;java.util.TreeMap;"
+                    + "java.util.Map$Entry;java.util.ArrayList;java.util.CollSer;java.util.Collections$*;!*");
+
+    private final Shard shard;
+
+    public ShardWorker(Shard shard) {
+        this.shard = shard;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: ShardWorker [<address>:]<port> <logFile>...");
+            return;
+        }
+        int separator = args[0].lastIndexOf(':');
+        InetAddress address = separator < 0
+                ? InetAddress.getLoopbackAddress() : InetAddress.getByName(args[0].substring(0, separator));
+        int port = Integer.parseInt(args[0].substring(separator + 1));
+        List<Path> logFiles = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            logFiles.add(Paths.get(args[i]));
+        }
+        ShardWorker worker = new ShardWorker(Shard.of(new LogParser(logFiles)));
+        try (ServerSocket serverSocket = new ServerSocket()) {
+            serverSocket.bind(new InetSocketAddress(address, port));
+            System.out.println(READY);
+            System.out.flush();
+            worker.serve(serverSocket);
+        }
+    }
+
+    public void serve(ServerSocket serverSocket) throws IOException {
+        while (!serverSocket.isClosed()) {
+            Socket socket = serverSocket.accept();
+            Thread.ofVirtual().start(() -> handle(socket));
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (socket;
+             ObjectOutputStream output = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            output.flush();
+            ObjectInputStream input = new ObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+            input.setObjectInputFilter(SERIAL_FILTER);
+            while (true) {
+                ShardRequest request = (ShardRequest) input.readObject();
+                output.writeObject(invoke(request));
+                output.flush();
+                output.reset();
+            }
+        } catch (IOException | ClassNotFoundException | ClassCastException ignored) {
+        }
+    }
+
+    private ShardResponse invoke(ShardRequest request) {
+        try {
+            Method method = Shard.class.getMethod(request.method(), request.parameterTypes());
+            return ShardResponse.of(method.invoke(shard, request.args()));
+        } catch (InvocationTargetException e) {
+            return ShardResponse.failed(e.getCause());
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return ShardResponse.failed(e);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package by.viachaslau;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadInBackgroundTest {
+    @TempDir
+    Path logDir;
+
+    @Test
+    void entriesNewerThanTheirFileAreWaitedFor() throws Exception {
+        TestLogs.write(logDir, 1, 200_000, 31);
+        Path future = logDir.resolve("future.log");
+        Files.write(future, List.of(
+                "120.120.120.122\tAmigo\t29.2.2028 5:4:7\tSOLVE_TASK 18\tOK",
+                "120.120.120.123\tVasya\t1.3.2028 5:4:7\tLOGIN\tOK"));
+        future.toFile().setLastModified(logDir.resolve("part0.log").toFile().lastModified() - 3600_000);
+
+        LogParser logParser = LogParser.loadInBackground(logDir, LoadPolicy.WAIT);
+
+        Date after = TestLogs.date("1.1.2027 0:0:0");
+        PartialResult<Set<String>> result = logParser.query(after, null, () -> logParser.getUniqueIPs(after, null));
+        assertEquals(Set.of("120.120.120.122", "120.120.120.123"), result.value());
+        assertFalse(result.partial());
+        assertTrue(logParser.isLoaded(after, null));
+    }
+
+    @Test
+    void waitQueriesSeeEveryRow() throws Exception {
+        TestLogs.write(logDir, 6, 20_000, 37);
+
+        LogParser logParser = LogParser.loadInBackground(logDir, LoadPolicy.WAIT);
+
+        LogParser reference = new LogParser(logDir);
+        Date after = TestLogs.date("1.2.2020 0:0:0");
+        Date before = TestLogs.date("1.4.2020 0:0:0");
+        assertEquals(reference.getUsersForIP("10.0.1.1", after, before),
+                logParser.getUsersForIP("10.0.1.1", after, before));
+        assertEquals(reference.getUniqueIPs(null, null), logParser.getUniqueIPs(null, null));
+        assertEquals(new LoadProgress(6, 6, 120_000, null, true), logParser.getLoadProgress());
+    }
+
+    @Test
+    void partialQueriesAnswerAtOnceAndSayWhetherTheyArePartial() throws Exception {
+        TestLogs.write(logDir, 2, 200_000, 39);
+        LogParser reference = new LogParser(logDir);
+
+        LogParser logParser = LogParser.loadInBackground(logDir, LoadPolicy.PARTIAL);
+
+        LoadProgress started = logParser.getLoadProgress();
+        assertFalse(started.done());
+        assertTrue(started.filesLoaded() < started.filesTotal());
+        PartialResult<Set<String>> early = logParser.query(null, null, () -> logParser.getAllUsers());
+        assertTrue(early.partial());
+
+        while (!logParser.getLoadProgress().done()) {
+            Thread.sleep(10);
+        }
+        PartialResult<Set<String>> late = logParser.query(null, null, () -> logParser.getAllUsers());
+        assertFalse(late.partial());
+        assertEquals(reference.getAllUsers(), late.value());
+        assertEquals(new LoadProgress(2, 2, 400_000, null, true), logParser.getLoadProgress());
+    }
+
+    @Test
+    void windowsAfterTheNewestEntryAreLoadedOnceItIsKnown() throws Exception {
+        TestLogs.write(logDir, 3, 1000, 41);
+        LogParser logParser = LogParser.loadInBackground(logDir, LoadPolicy.PARTIAL);
+        Date after = TestLogs.date("1.1.2021 0:0:0");
+
+        while (logParser.getLoadProgress().loadedAfter() != null
+                && logParser.getLoadProgress().loadedAfter().getTime() == Long.MAX_VALUE) {
+            Thread.sleep(1);
+        }
+
+        assertTrue(logParser.isLoaded(after, null));
+        assertFalse(logParser.query(after, null, () -> logParser.getUniqueIPs(after, null)).partial());
+    }
+
+    @Test
+    void emptyDirectoryIsLoadedAtOnce() {
+        LogParser logParser = LogParser.loadInBackground(logDir, LoadPolicy.WAIT);
+
+        assertTrue(logParser.isLoaded(null, null));
+        assertEquals(new LoadProgress(0, 0, 0, null, true), logParser.getLoadProgress());
+        assertEquals(Set.of(), logParser.getAllUsers());
+    }
+}
@@ -0,0 +1,66 @@
+package by.viachaslau;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class QueryPlannerTest {
+    @TempDir
+    Path logDir;
+
+    @Test
+    void everyAccessPathAnswersLikeAPlainScan() throws Exception {
+        List<TestLogs.Row> rows = TestLogs.parse(TestLogs.write(logDir, 4, 3000, 17));
+        LogParser logParser = new LogParser(logDir);
+        Set<QueryPlan.AccessPath> accessPaths = EnumSet.noneOf(QueryPlan.AccessPath.class);
+        logParser.setPlanListener(plan -> accessPaths.add(plan.accessPath()));
+        long boundary = rows.get(4500).timestamp();
+        Date[][] windows = {
+                {null, null},
+                {TestLogs.date("10.2.2020 0:0:0"), TestLogs.date("11.2.2020 0:0:0")},
+                {TestLogs.date("15.1.2020 0:0:0"), TestLogs.date("20.3.2020 0:0:0")},
+                {new Date(boundary), new Date(boundary + 24 * 3600 * 1000)},
+                {new Date(boundary - 24 * 3600 * 1000), new Date(boundary)}
+        };
+
+        for (Date[] window : windows) {
+            Date after = window[0];
+            Date before = window[1];
+            assertEquals(select(rows, after, before, row -> true, TestLogs.Row::ip),
+                    logParser.getUniqueIPs(after, before));
+            for (String user : List.of("user3", "user42", "nobody")) {
+                assertEquals(select(rows, after, before, row -> row.user().equals(user), TestLogs.Row::ip),
+                        logParser.getIPsForUser(user, after, before));
+            }
+            for (String ip : List.of("10.0.1.5", "10.0.3.0", "192.168.0.1")) {
+                assertEquals(select(rows, after, before, row -> row.ip().equals(ip), TestLogs.Row::user),
+                        logParser.getUsersForIP(ip, after, before));
+            }
+            assertEquals(select(rows, after, before, row -> row.event() == Event.SOLVE_TASK && row.task() == 3,
+                            row -> row).size(),
+                    logParser.getNumberOfAttemptToSolveTask(3, after, before));
+            assertEquals(select(rows, after, before, row -> row.status() == Status.FAILED,
+                            row -> new Date(row.timestamp())),
+                    logParser.getDatesWhenSomethingFailed(after, before));
+        }
+
+        assertEquals(EnumSet.allOf(QueryPlan.AccessPath.class), accessPaths);
+    }
+
+    private static <T> Set<T> select(List<TestLogs.Row> rows, Date after, Date before,
+                                     Predicate<TestLogs.Row> filter, Function<TestLogs.Row, T> value) {
+        Set<T> result = new HashSet<>();
+        for (TestLogs.Row row : rows) {
+            if (row.isBetween(after, before) && filter.test(row)) {
+                result.add(value.apply(row));
+            }
+        }
+        return result;
+    }
+}
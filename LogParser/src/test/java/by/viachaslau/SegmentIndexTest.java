@@ -0,0 +1,97 @@
+package by.viachaslau;
+
+import by.viachaslau.scan.ScanPredicate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentIndexTest {
+    @TempDir
+    Path tempDir;
+
+    private long touched;
+
+    @Test
+    void bloomFilterHasNoFalseNegativesAndFewFalsePositives() {
+        int keys = 10_000;
+        BloomFilter bloomFilter = new BloomFilter(keys);
+        for (int i = 0; i < keys; i++) {
+            bloomFilter.add("user" + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < keys; i++) {
+            assertTrue(bloomFilter.mightContain("user" + i), "user" + i);
+            if (bloomFilter.mightContain("other" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < keys / 50, falsePositives + " false positives");
+    }
+
+    @Test
+    void indexMayMatchEveryRowOfItsSegment() throws Exception {
+        Path logDir = Files.createDirectory(tempDir.resolve("logs"));
+        List<TestLogs.Row> rows = TestLogs.parse(TestLogs.write(logDir, 1, 3000, 53));
+        Segment segment = new Segment();
+        for (TestLogs.Row row : rows) {
+            segment.add(row.ip(), row.user(), new Date(row.timestamp()), row.event(), row.task(), row.status());
+        }
+        segment.seal();
+        SegmentIndex index = segment.index();
+
+        for (TestLogs.Row row : rows) {
+            assertTrue(index.mightContainUser(row.user()), row.user());
+            assertTrue(index.mightContainIp(row.ip()), row.ip());
+            assertTrue(index.mayMatch(new ScanPredicate(row.timestamp() - 1, row.timestamp() + 1,
+                    Segment.code(row.event()), Segment.code(row.status()),
+                    row.task() < 0 ? ScanPredicate.ANY_TASK : row.task())), row.toString());
+        }
+        assertFalse(index.mayMatch(new ScanPredicate(index.lastTimestamp(), Long.MAX_VALUE,
+                ScanPredicate.ANY_CODE, ScanPredicate.ANY_CODE, ScanPredicate.ANY_TASK)));
+        assertFalse(index.mayMatch(new ScanPredicate(0, index.firstTimestamp(),
+                ScanPredicate.ANY_CODE, ScanPredicate.ANY_CODE, ScanPredicate.ANY_TASK)));
+    }
+
+    @Test
+    void queriesSkipSegmentsTheIndexRulesOut() throws Exception {
+        Path logDir = Files.createDirectory(tempDir.resolve("logs"));
+        List<TestLogs.Row> rows = TestLogs.parse(TestLogs.write(logDir, 6, 1000, 59));
+        Files.write(logDir.resolve("loner.log"), List.of("192.168.0.1\tloner\t15.3.2020 10:0:0\tLOGIN\tOK"));
+        LogParser logParser = new LogParser(logDir);
+        logParser.setMemoryBudget(Long.MAX_VALUE, Files.createDirectory(tempDir.resolve("spill")));
+
+        assertEquals(Set.of("192.168.0.1"), logParser.getIPsForUser("loner", null, null));
+        assertEquals(1, touchedSegments(logParser));
+
+        assertEquals(Set.of("loner"), logParser.getUsersForIP("192.168.0.1", null, null));
+        assertEquals(1, touchedSegments(logParser));
+
+        Date after = TestLogs.date("2.3.2020 0:0:0");
+        Date before = TestLogs.date("20.3.2020 0:0:0");
+        Set<String> expected = new HashSet<>(Set.of("192.168.0.1"));
+        rows.stream().filter(row -> row.isBetween(after, before)).forEach(row -> expected.add(row.ip()));
+        assertEquals(expected, logParser.getUniqueIPs(after, before));
+        assertEquals(2, touchedSegments(logParser));
+
+        assertEquals(0, logParser.getNumberOfAttemptToSolveTask(99, null, null));
+        assertEquals(Set.of(), logParser.getUniqueIPs(TestLogs.date("1.1.2021 0:0:0"), null));
+        assertEquals(0, touchedSegments(logParser));
+    }
+
+    private long touchedSegments(LogParser logParser) {
+        SpillMetrics metrics = logParser.getSpillMetrics();
+        long total = metrics.hits() + metrics.misses();
+        long result = total - touched;
+        touched = total;
+        return result;
+    }
+}
@@ -0,0 +1,91 @@
+package by.viachaslau;
+
+import by.viachaslau.scan.ScalarScanKernel;
+import by.viachaslau.scan.ScanKernel;
+import by.viachaslau.scan.ScanPredicate;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpillFileTest {
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void spilledSegmentAnswersLikeTheResidentOne() throws Exception {
+        Path logDir = Files.createDirectory(tempDir.resolve("logs"));
+        List<TestLogs.Row> rows = TestLogs.parse(TestLogs.write(logDir, 1, 2000, 11));
+        Segment segment = new Segment();
+        for (TestLogs.Row row : rows) {
+            segment.add(row.ip(), row.user(), new Date(row.timestamp()), row.event(), row.task(), row.status());
+        }
+        segment.seal();
+        List<Object> resident = describe(segment, rows);
+
+        segment.spill(Files.createDirectory(tempDir.resolve("spill")));
+
+        assertFalse(segment.isResident());
+        assertEquals(resident, describe(segment, rows));
+    }
+
+    @Test
+    void parsersSharingASpillDirectoryKeepTheirOwnFiles() throws Exception {
+        Path firstLogDir = Files.createDirectory(tempDir.resolve("first"));
+        Path secondLogDir = Files.createDirectory(tempDir.resolve("second"));
+        Path spillDir = Files.createDirectory(tempDir.resolve("spill"));
+        List<TestLogs.Row> firstRows = TestLogs.parse(TestLogs.write(firstLogDir, 3, 500, 13));
+        List<TestLogs.Row> secondRows = TestLogs.parse(TestLogs.write(secondLogDir, 3, 500, 14));
+
+        LogParser first = new LogParser(firstLogDir);
+        first.setMemoryBudget(1, spillDir);
+        LogParser second = new LogParser(secondLogDir);
+        second.setMemoryBudget(1, spillDir);
+
+        assertEquals(3, first.getSpillMetrics().spilledSegments());
+        assertEquals(3, second.getSpillMetrics().spilledSegments());
+        assertEquals(datesOf(firstRows, "user1"), first.getDatesForUserAndEvent("user1", Event.LOGIN, null, null));
+        assertEquals(datesOf(secondRows, "user1"), second.getDatesForUserAndEvent("user1", Event.LOGIN, null, null));
+    }
+
+    private static Set<Date> datesOf(List<TestLogs.Row> rows, String user) {
+        Set<Date> dates = new HashSet<>();
+        for (TestLogs.Row row : rows) {
+            if (row.user().equals(user) && row.event() == Event.LOGIN) {
+                dates.add(new Date(row.timestamp()));
+            }
+        }
+        return dates;
+    }
+
+    private static List<Object> describe(Segment segment, List<TestLogs.Row> rows) {
+        List<Object> description = new ArrayList<>();
+        for (int row = 0; row < segment.size(); row++) {
+            description.add(List.of(segment.ip(row), segment.user(row), segment.timestamp(row),
+                    segment.eventCode(row), segment.statusCode(row), segment.task(row)));
+        }
+        SegmentLookup lookup = segment.lookup();
+        for (TestLogs.Row row : rows) {
+            description.add(Arrays.toString(lookup.rowsForUser(row.user())));
+            description.add(Arrays.toString(lookup.rowsForIp(row.ip())));
+            description.add(lookup.firstAfter(row.timestamp()));
+            description.add(lookup.firstNotBefore(row.timestamp()));
+        }
+        description.add(Arrays.toString(lookup.rowsForUser("nobody")));
+        for (int i = 0; i < segment.size(); i++) {
+            description.add(lookup.rowByTime(i));
+        }
+        ScanKernel kernel = new ScalarScanKernel();
+        ScanPredicate predicate = new ScanPredicate(rows.get(0).timestamp(), Long.MAX_VALUE,
+                Segment.code(Event.SOLVE_TASK), ScanPredicate.ANY_CODE, 3);
+        int[] selected = new int[segment.size()];
+        int quantity = segment.select(kernel, 0, segment.size(), predicate, selected);
+        description.add(Arrays.toString(Arrays.copyOf(selected, quantity)));
+        description.add(segment.count(kernel, 0, segment.size(), predicate));
+        return description;
+    }
+}
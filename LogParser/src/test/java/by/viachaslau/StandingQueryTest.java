@@ -0,0 +1,128 @@
+package by.viachaslau;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.Flow;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StandingQueryTest {
+    @Test
+    void resultStartsFromLoadedRowsAndGrowsWithAddedOnes() throws Exception {
+        LogParser logParser = new LogParser(List.of());
+        logParser.addLogLine("1.1.1.1\ta\t1.5.2020 10:0:0\tLOGIN\tOK");
+        logParser.addLogLine("1.1.1.2\tb\t1.5.2020 10:0:0\tLOGIN\tOK");
+
+        StandingQuery<Object> standingQuery = logParser.register("get ip for user = \"a\"");
+        Collector<Object> collector = new Collector<>();
+        standingQuery.subscribe(collector);
+        assertEquals(Set.of("1.1.1.1"), standingQuery.snapshot());
+
+        logParser.addLogLine("1.1.1.3\ta\t1.5.2020 11:0:0\tLOGOUT\tOK");
+        logParser.addLogLine("1.1.1.3\ta\t1.5.2020 12:0:0\tLOGIN\tOK");
+        logParser.addLogLine("1.1.1.4\tb\t1.5.2020 12:0:0\tLOGIN\tOK");
+
+        assertEquals(List.of("1.1.1.3"), collector.await(1));
+        assertEquals(logParser.execute("get ip for user = \"a\""), standingQuery.snapshot());
+        assertEquals(0, standingQuery.getDroppedValues());
+
+        standingQuery.close();
+        logParser.addLogLine("1.1.1.5\ta\t1.5.2020 13:0:0\tLOGIN\tOK");
+        assertEquals(Set.of("1.1.1.1", "1.1.1.3"), standingQuery.snapshot());
+    }
+
+    @Test
+    void resultOnlyTakesRowsInItsWindow() throws Exception {
+        LogParser logParser = new LogParser(List.of());
+        StandingQuery<Date> standingQuery = logParser.registerDates(Status.FAILED,
+                TestLogs.date("1.5.2020 0:0:0"), TestLogs.date("2.5.2020 0:0:0"));
+
+        logParser.addLogLine("1.1.1.1\ta\t30.4.2020 10:0:0\tSOLVE_TASK 1\tFAILED");
+        logParser.addLogLine("1.1.1.1\ta\t1.5.2020 10:0:0\tSOLVE_TASK 1\tFAILED");
+        logParser.addLogLine("1.1.1.1\ta\t1.5.2020 11:0:0\tSOLVE_TASK 1\tOK");
+        logParser.addLogLine("1.1.1.1\ta\t2.5.2020 10:0:0\tSOLVE_TASK 1\tFAILED");
+
+        assertEquals(Set.of(TestLogs.date("1.5.2020 10:0:0")), standingQuery.snapshot());
+    }
+
+    @Test
+    void slowSubscriberMissesValuesWithoutBlockingIngest() throws Exception {
+        LogParser logParser = new LogParser(List.of());
+        StandingQuery<Object> standingQuery = logParser.register("get user");
+        standingQuery.subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+            }
+
+            @Override
+            public void onNext(Object item) {
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        int users = 2000;
+        for (int i = 0; i < users; i++) {
+            assertTrue(logParser.addLogLine("1.1.1.1\tuser" + i + "\t1.5.2020 10:0:0\tLOGIN\tOK"));
+        }
+
+        assertEquals(users, standingQuery.snapshot().size());
+        assertTrue(standingQuery.getDroppedValues() > 0);
+    }
+
+    @Test
+    void addLogLineRejectsLinesItCannotParse() {
+        LogParser logParser = new LogParser(List.of());
+
+        assertFalse(logParser.addLogLine("1.1.1.1\ta\t1.5.2020 10:0:0\tLOGIN"));
+        assertFalse(logParser.addLogLine("1.1.1.1\ta\t1.5.2020 10:0:0\tJUMP\tOK"));
+        assertFalse(logParser.addLogLine("1.1.1.1\ta\t1.5.2020 10:0:0\tLOGIN\tMAYBE"));
+        assertFalse(logParser.addLogLine("1.1.1.1\ta\t1.5.2020 10:0:0\tSOLVE_TASK one\tOK"));
+        assertFalse(logParser.addLogLine("1.1.1.1\ta\t1.5.2020 10:0:0\tDONE_TASK\tOK"));
+        assertEquals(Set.of(), logParser.getAllUsers());
+        assertNull(logParser.getFirstDate());
+
+        assertTrue(logParser.addLogLine("1.1.1.1\ta\t1.5.2020 10:0:0\tSOLVE_TASK 7\tOK"));
+        assertEquals(1, logParser.getNumberOfAttemptToSolveTask(7, null, null));
+    }
+
+    private static class Collector<T> implements Flow.Subscriber<T> {
+        private final List<T> items = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(T item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+        }
+
+        @Override
+        public void onComplete() {
+        }
+
+        List<T> await(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (items.size() < count && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Thread.sleep(50);
+            synchronized (items) {
+                return new ArrayList<>(items);
+            }
+        }
+    }
+}
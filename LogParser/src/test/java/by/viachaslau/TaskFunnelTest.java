@@ -0,0 +1,63 @@
+package by.viachaslau;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskFunnelTest {
+    @Test
+    void conversionsFollowEveryUserFromFirstAttemptToFirstDone() throws Exception {
+        LogParser logParser = parse(
+                "1.1.1.1\ta\t1.5.2020 10:0:0\tSOLVE_TASK 1\tFAILED",
+                "1.1.1.1\ta\t1.5.2020 10:0:10\tSOLVE_TASK 1\tERROR",
+                "1.1.1.1\ta\t1.5.2020 10:0:20\tSOLVE_TASK 1\tOK",
+                "1.1.1.1\ta\t1.5.2020 10:1:0\tDONE_TASK 1\tOK",
+                "1.1.1.2\tb\t1.5.2020 10:0:5\tSOLVE_TASK 1\tOK",
+                "1.1.1.2\tb\t1.5.2020 10:2:5\tDONE_TASK 1\tOK",
+                "1.1.1.3\tc\t1.5.2020 10:0:0\tSOLVE_TASK 1\tFAILED",
+                "1.1.1.4\td\t1.5.2020 10:0:0\tDONE_TASK 1\tOK",
+                "1.1.1.5\te\t1.5.2020 10:0:1\tSOLVE_TASK 1\tOK",
+                "1.1.1.5\te\t1.5.2020 10:0:31\tDONE_TASK 1\tOK",
+                "1.1.1.5\te\t1.5.2020 10:5:0\tSOLVE_TASK 1\tFAILED",
+                "1.1.1.5\te\t1.5.2020 10:6:0\tDONE_TASK 1\tOK",
+                "1.1.1.1\ta\t1.5.2020 11:0:0\tSOLVE_TASK 2\tOK",
+                "1.1.1.1\ta\t1.5.2020 11:0:30\tDONE_TASK 2\tOK");
+
+        Map<Integer, TaskConversion> conversions = logParser.getTaskConversions(null, null);
+
+        TaskConversion first = conversions.get(1);
+        assertEquals(new TaskConversion(1, 4, 3, List.of(30_000L, 60_000L, 120_000L), List.of(0, 0, 2)), first);
+        assertEquals(0.75, first.conversionRate(), 1e-9);
+        assertEquals(60_000L, first.latencyPercentile(0.5));
+        assertEquals(120_000L, first.latencyPercentile(0.99));
+        assertEquals(2.0 / 3, first.averageFailedAttemptsBeforeDone(), 1e-9);
+        assertEquals(new TaskConversion(2, 1, 1, List.of(30_000L), List.of(0)), conversions.get(2));
+        assertEquals(conversions, logParser.getTaskConversions(null, null));
+        assertFalse(first.toString().contains("[J@"));
+    }
+
+    @Test
+    void conversionsOnlySeeTheWindow() throws Exception {
+        LogParser logParser = parse(
+                "1.1.1.1\ta\t1.5.2020 10:0:0\tSOLVE_TASK 1\tOK",
+                "1.1.1.1\ta\t1.5.2020 10:1:0\tDONE_TASK 1\tOK",
+                "1.1.1.2\tb\t1.5.2020 10:0:0\tSOLVE_TASK 1\tFAILED",
+                "1.1.1.2\tb\t1.5.2020 10:3:0\tDONE_TASK 1\tOK");
+
+        TaskConversion conversion = logParser.getTaskConversions(null, TestLogs.date("1.5.2020 10:2:0")).get(1);
+
+        assertEquals(new TaskConversion(1, 2, 1, List.of(60_000L), List.of(0)), conversion);
+        assertEquals(-1, new TaskConversion(3, 1, 0, List.of(), List.of()).latencyPercentile(0.5));
+    }
+
+    private static LogParser parse(String... lines) {
+        LogParser logParser = new LogParser(List.of());
+        for (String line : lines) {
+            assertTrue(logParser.addLogLine(line), line);
+        }
+        return logParser;
+    }
+}
@@ -0,0 +1,78 @@
+package by.viachaslau;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates log files for tests. File {@code i} covers the {@code i}-th month of 2020,
+ * so files do not overlap in time, and every line is valid.
+ */
+public final class TestLogs {
+    private static final Event[] EVENTS = Event.values();
+    private static final Status[] STATUSES = Status.values();
+
+    private TestLogs() {
+    }
+
+    public static List<String> write(Path logDir, int files, int linesPerFile, long seed) throws IOException {
+        DateFormat dateFormat = dateFormat();
+        Random random = new Random(seed);
+        List<String> lines = new ArrayList<>();
+        for (int file = 0; file < files; file++) {
+            Calendar calendar = Calendar.getInstance();
+            calendar.clear();
+            calendar.set(2020, file, 1);
+            long monthStart = calendar.getTimeInMillis();
+            List<String> fileLines = new ArrayList<>();
+            for (int i = 0; i < linesPerFile; i++) {
+                String ip = "10.0." + random.nextInt(4) + "." + random.nextInt(10);
+                String user = "user" + random.nextInt(50);
+                long timestamp = monthStart + random.nextInt(28 * 24 * 3600) * 1000L;
+                Event event = EVENTS[random.nextInt(EVENTS.length)];
+                String eventText = event == Event.SOLVE_TASK || event == Event.DONE_TASK
+                        ? event + " " + (random.nextInt(10) + 1) : event.toString();
+                Status status = STATUSES[random.nextInt(STATUSES.length)];
+                fileLines.add(ip + "\t" + user + "\t" + dateFormat.format(timestamp) + "\t" + eventText + "\t" + status);
+            }
+            Files.write(logDir.resolve("part" + file + ".log"), fileLines);
+            lines.addAll(fileLines);
+        }
+        return lines;
+    }
+
+    public static List<Row> parse(List<String> lines) throws ParseException {
+        DateFormat dateFormat = dateFormat();
+        List<Row> rows = new ArrayList<>();
+        for (String line : lines) {
+            String[] params = line.split("\t");
+            String[] event = params[3].split(" ");
+            rows.add(new Row(params[0], params[1], dateFormat.parse(params[2]).getTime(), Event.valueOf(event[0]),
+                    event.length > 1 ? Integer.parseInt(event[1]) : -1, Status.valueOf(params[4])));
+        }
+        return rows;
+    }
+
+    public static Date date(String value) throws ParseException {
+        return dateFormat().parse(value);
+    }
+
+    private static DateFormat dateFormat() {
+        return new SimpleDateFormat("d.M.yyyy H:m:s");
+    }
+
+    public record Row(String ip, String user, long timestamp, Event event, int task, Status status) {
+        public boolean isBetween(Date after, Date before) {
+            return timestamp > (after == null ? 0 : after.getTime())
+                    && timestamp < (before == null ? Long.MAX_VALUE : before.getTime());
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package by.viachaslau.scan;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ScanKernelTest {
+    private static final int ROWS = 1000;
+
+    private final ScanKernel scalar = new ScalarScanKernel();
+    private final ScanKernel vector = new VectorScanKernel();
+
+    @Test
+    void vectorKernelMatchesScalarKernel() {
+        Random random = new Random(7);
+        long[] timestamps = new long[ROWS];
+        byte[] events = new byte[ROWS];
+        byte[] statuses = new byte[ROWS];
+        int[] tasks = new int[ROWS];
+        for (int row = 0; row < ROWS; row++) {
+            timestamps[row] = random.nextInt(10) == 0 ? Long.MIN_VALUE : 1000 + random.nextInt(100);
+            events[row] = (byte) (random.nextInt(6) - 1);
+            statuses[row] = (byte) (random.nextInt(4) - 1);
+            tasks[row] = random.nextInt(5) - 1;
+        }
+        ScanPredicate[] predicates = {
+                new ScanPredicate(0, Long.MAX_VALUE, ScanPredicate.ANY_CODE, ScanPredicate.ANY_CODE,
+                        ScanPredicate.ANY_TASK),
+                new ScanPredicate(1030, 1060, ScanPredicate.ANY_CODE, ScanPredicate.ANY_CODE, ScanPredicate.ANY_TASK),
+                new ScanPredicate(0, Long.MAX_VALUE, (byte) 3, ScanPredicate.ANY_CODE, ScanPredicate.ANY_TASK),
+                new ScanPredicate(1000, 1099, (byte) 3, (byte) 1, 2),
+                new ScanPredicate(0, 1050, ScanPredicate.ANY_CODE, (byte) 2, ScanPredicate.ANY_TASK),
+                new ScanPredicate(2000, Long.MAX_VALUE, ScanPredicate.ANY_CODE, ScanPredicate.ANY_CODE,
+                        ScanPredicate.ANY_TASK)
+        };
+        int[][] ranges = {{0, ROWS}, {0, 0}, {3, 5}, {1, 130}, {64, 128}, {17, ROWS - 9}};
+        for (ScanPredicate predicate : predicates) {
+            for (int[] range : ranges) {
+                int from = range[0];
+                int to = range[1];
+                assertEquals(scalar.count(timestamps, events, statuses, tasks, from, to, predicate),
+                        vector.count(timestamps, events, statuses, tasks, from, to, predicate),
+                        predicate + " over " + from + ".." + to);
+                int[] scalarRows = new int[to - from];
+                int[] vectorRows = new int[to - from];
+                int scalarQuantity = scalar.select(timestamps, events, statuses, tasks, from, to, predicate, scalarRows);
+                int vectorQuantity = vector.select(timestamps, events, statuses, tasks, from, to, predicate, vectorRows);
+                assertArrayEquals(Arrays.copyOf(scalarRows, scalarQuantity), Arrays.copyOf(vectorRows, vectorQuantity),
+                        predicate + " over " + from + ".." + to);
+            }
+        }
+    }
+}
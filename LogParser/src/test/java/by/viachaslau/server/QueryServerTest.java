@@ -0,0 +1,147 @@
+package by.viachaslau.server;
+
+import by.viachaslau.LogParser;
+import by.viachaslau.TestLogs;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryServerTest {
+    @TempDir
+    Path logDir;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    void identicalRequestsShareOneScan() throws Exception {
+        TestLogs.write(logDir, 2, 500, 41);
+        BlockingParser logParser = new BlockingParser(logDir);
+        QueryServer server = start(logParser, 4, 10_000);
+        try {
+            String after = URLEncoder.encode("1.1.2020 0:0:0", StandardCharsets.UTF_8);
+            CompletableFuture<HttpResponse<String>> first =
+                    getAsync(server, "/query/getIPsForUser?user=user3&after=" + after);
+            logParser.awaitCalls(1);
+            CompletableFuture<HttpResponse<String>> reordered =
+                    getAsync(server, "/query/getIPsForUser?after=" + after + "&user=user3");
+            CompletableFuture<HttpResponse<String>> smuggled = getAsync(server,
+                    "/query/getIPsForUser?user=" + URLEncoder.encode("user3&after=" + after, StandardCharsets.UTF_8));
+            logParser.awaitCalls(2);
+            Thread.sleep(200);
+            logParser.release();
+
+            assertEquals(200, first.get().statusCode());
+            assertEquals(first.get().body(), reordered.get().body());
+            assertEquals("[]", smuggled.get().body());
+            assertEquals(2, logParser.calls.get());
+            assertEquals(Json.write(logParser.getIPsForUser("user3", TestLogs.date("1.1.2020 0:0:0"), null)),
+                    first.get().body());
+        } finally {
+            logParser.release();
+            server.stop();
+        }
+    }
+
+    @Test
+    void malformedRequestsAreRejected() throws Exception {
+        TestLogs.write(logDir, 1, 100, 43);
+        QueryServer server = start(new LogParser(logDir), 4, 10_000);
+        try {
+            assertEquals(400, get(server, "/ql?query=garbage").statusCode());
+            assertEquals(400, get(server, "/query/getIPsForUser?user=user3&after=yesterday").statusCode());
+            assertEquals(400, get(server, "/query/getNumberOfAttemptToSolveTask?task=three").statusCode());
+            assertEquals(404, get(server, "/qlanything?query=get+ip").statusCode());
+            assertEquals(404, get(server, "/query/getEverything").statusCode());
+            assertEquals(200, get(server, "/ql?query=get+ip").statusCode());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    void scansOverTheLimitAreTurnedAway() throws Exception {
+        TestLogs.write(logDir, 1, 100, 47);
+        BlockingParser logParser = new BlockingParser(logDir);
+        QueryServer server = start(logParser, 1, 100);
+        try {
+            CompletableFuture<HttpResponse<String>> running = getAsync(server, "/query/getIPsForUser?user=user1");
+            logParser.awaitCalls(1);
+
+            assertEquals(503, get(server, "/query/getIPsForUser?user=user2").statusCode());
+
+            logParser.release();
+            assertEquals(200, running.get().statusCode());
+            assertEquals(200, get(server, "/query/getIPsForUser?user=user2").statusCode());
+        } finally {
+            logParser.release();
+            server.stop();
+        }
+    }
+
+    private static QueryServer start(LogParser logParser, int maxConcurrentScans, long admissionTimeoutMillis)
+            throws Exception {
+        QueryServer server = new QueryServer(logParser, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                maxConcurrentScans, admissionTimeoutMillis);
+        server.start();
+        return server;
+    }
+
+    private HttpResponse<String> get(QueryServer server, String path) throws Exception {
+        return getAsync(server, path).get();
+    }
+
+    private CompletableFuture<HttpResponse<String>> getAsync(QueryServer server, String path) {
+        URI uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + path);
+        return client.sendAsync(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Holds every {@link #getIPsForUser} call until {@link #release()}, so tests can
+     * send requests while a scan is in flight.
+     */
+    private static class BlockingParser extends LogParser {
+        private final AtomicInteger calls = new AtomicInteger();
+        private final CountDownLatch released = new CountDownLatch(1);
+
+        BlockingParser(Path logDir) {
+            super(logDir);
+        }
+
+        @Override
+        public Set<String> getIPsForUser(String user, Date after, Date before) {
+            calls.incrementAndGet();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.getIPsForUser(user, after, before);
+        }
+
+        void awaitCalls(int count) throws InterruptedException {
+            while (calls.get() < count) {
+                Thread.sleep(10);
+            }
+        }
+
+        void release() {
+            released.countDown();
+        }
+    }
+}
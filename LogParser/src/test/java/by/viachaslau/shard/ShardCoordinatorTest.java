@@ -0,0 +1,91 @@
+package by.viachaslau.shard;
+
+import by.viachaslau.Event;
+import by.viachaslau.LogParser;
+import by.viachaslau.Status;
+import by.viachaslau.TestLogs;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardCoordinatorTest {
+    @TempDir
+    Path logDir;
+
+    @Test
+    void coordinatorAnswersLikeASingleParser() throws Exception {
+        TestLogs.write(logDir, 6, 1000, 23);
+        LogParser logParser = new LogParser(logDir);
+        Date[][] windows = {
+                {null, null},
+                {TestLogs.date("2.3.2020 0:0:0"), TestLogs.date("20.3.2020 0:0:0")},
+                {TestLogs.date("15.2.2020 0:0:0"), TestLogs.date("10.5.2020 0:0:0")},
+                {TestLogs.date("1.1.2021 0:0:0"), null}
+        };
+        try (ShardCoordinator coordinator = ShardCoordinator.inProcess(logDir, 3)) {
+            assertEquals(logParser.getFirstDate(), coordinator.getFirstDate());
+            assertEquals(logParser.getLastDate(), coordinator.getLastDate());
+            assertEquals(logParser.getAllUsers(), coordinator.getAllUsers());
+            for (Date[] window : windows) {
+                Date after = window[0];
+                Date before = window[1];
+                assertEquals(logParser.getNumberOfUniqueIPs(after, before), coordinator.getNumberOfUniqueIPs(after, before));
+                assertEquals(logParser.getIPsForUser("user7", after, before), coordinator.getIPsForUser("user7", after, before));
+                assertEquals(logParser.getIPsForStatus(Status.ERROR, after, before),
+                        coordinator.getIPsForStatus(Status.ERROR, after, before));
+                assertEquals(logParser.getNumberOfUsers(after, before), coordinator.getNumberOfUsers(after, before));
+                assertEquals(logParser.getUsersForIP("10.0.2.4", after, before),
+                        coordinator.getUsersForIP("10.0.2.4", after, before));
+                assertEquals(logParser.getDoneTaskUsers(after, before, 5), coordinator.getDoneTaskUsers(after, before, 5));
+                assertEquals(logParser.getDatesForUserAndEvent("user9", Event.WRITE_MESSAGE, after, before),
+                        coordinator.getDatesForUserAndEvent("user9", Event.WRITE_MESSAGE, after, before));
+                assertEquals(logParser.getDateWhenUserLoggedFirstTime("user5", after, before),
+                        coordinator.getDateWhenUserLoggedFirstTime("user5", after, before));
+                assertEquals(logParser.getDateWhenUserSolvedTask("user5", 3, after, before),
+                        coordinator.getDateWhenUserSolvedTask("user5", 3, after, before));
+                assertNull(coordinator.getDateWhenUserDoneTask("nobody", 5, after, before));
+                assertEquals(logParser.getEventsForUser("user11", after, before),
+                        coordinator.getEventsForUser("user11", after, before));
+                assertEquals(logParser.getNumberOfAttemptToSolveTask(4, after, before),
+                        coordinator.getNumberOfAttemptToSolveTask(4, after, before));
+                assertEquals(logParser.getAllDoneTasksAndTheirNumber(after, before),
+                        coordinator.getAllDoneTasksAndTheirNumber(after, before));
+            }
+            for (String query : List.of("get user", "get ip for user = \"user4\"",
+                    "get date for status = \"ERROR\" and date between \"1.2.2020 0:0:0\" and \"1.4.2020 0:0:0\"")) {
+                assertEquals(logParser.execute(query), coordinator.execute(query));
+            }
+        }
+    }
+
+    @Test
+    void remoteShardRethrowsArgumentErrorsAsSuch() throws Exception {
+        TestLogs.write(logDir, 1, 100, 29);
+        ShardWorker worker = new ShardWorker(Shard.of(new LogParser(logDir)));
+        try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            Thread.ofVirtual().start(() -> {
+                try {
+                    worker.serve(serverSocket);
+                } catch (Exception ignored) {
+                }
+            });
+            Shard shard = RemoteShard.connect(new InetSocketAddress(serverSocket.getInetAddress(), serverSocket.getLocalPort()));
+            try (ShardCoordinator coordinator = new ShardCoordinator(List.of(shard))) {
+                IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                        () -> coordinator.execute("garbage"));
+                assertEquals("Invalid query: garbage", e.getMessage());
+                assertEquals(new LogParser(logDir).getAllUsers(), coordinator.getAllUsers());
+            } finally {
+                ((AutoCloseable) shard).close();
+            }
+        }
+    }
+}